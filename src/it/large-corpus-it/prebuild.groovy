@@ -0,0 +1,142 @@
+/*
+ * Generates Javadoc and Groovydoc corpora of two sizes. The small one is the baseline the large
+ * one is measured against, so the budgets do not depend on the speed of the build machine.
+ */
+
+// Far enough apart that quadratic work stands out from linear work
+def corpora = [small: 10, large: 80]
+def javaClassesPerPackage = 10
+def groovyClassesPerPackage = 10
+// Every fifth package has only Groovy classes, so its package pages are created by the merge
+def groovyOnlyInterval = 5
+
+def write = { File file, String text ->
+  file.parentFile.mkdirs()
+  file.setText(text, 'UTF-8')
+}
+
+def page = { String title, String body ->
+  """<!DOCTYPE HTML PUBLIC "-//W3C//DTD HTML 4.01 Transitional//EN" "http://www.w3.org/TR/html4/loose.dtd">
+<html lang="en">
+<head>
+<meta http-equiv="Content-Type" content="text/html; charset=UTF-8">
+<title>${title}</title>
+<link rel="stylesheet" type="text/css" href="stylesheet.css" title="Style">
+</head>
+<body>
+${body}
+</body>
+</html>
+"""
+}
+
+def packageName = { int p -> "com.example.p${p}" }
+def packagePath = { int p -> packageName(p).replace('.', '/') }
+def javaName = { int p, int c -> "P${p}Java${c}" }
+def groovyName = { int p, int c -> "P${p}Groovy${c}" }
+def isGroovyOnly = { int p -> p % groovyOnlyInterval == groovyOnlyInterval - 1 }
+
+corpora.each { String corpus, int packages ->
+  File javadocDir = new File(basedir, "corpus/${corpus}/javadoc")
+  File groovydocDir = new File(basedir, "corpus/${corpus}/groovydoc")
+  def javaPackages = (0..<packages).findAll { !isGroovyOnly(it) }
+
+  // Javadoc
+  def allClasses = javaPackages.collectMany { p ->
+    (0..<javaClassesPerPackage).collect { c ->
+      "<li><a href=\"${packagePath(p)}/${javaName(p, c)}.html\" title=\"class in ${packageName(p)}\" target=\"classFrame\">${javaName(p, c)}</a></li>"
+    }
+  }.join('\n')
+  ['allclasses-frame.html', 'allclasses-noframe.html'].each {
+    write(new File(javadocDir, it), page('All Classes', """<h1 class="bar">All&nbsp;Classes</h1>
+<div class="indexContainer">
+<ul>
+${allClasses}
+</ul>
+</div>"""))
+  }
+  write(new File(javadocDir, 'overview-frame.html'), page('Overview', """<div class="indexContainer">
+<h2 title="Packages">Packages</h2>
+<ul title="Packages">
+${javaPackages.collect { "<li><a href=\"${packagePath(it)}/package-frame.html\" target=\"packageFrame\">${packageName(it)}</a></li>" }.join('\n')}
+</ul>
+</div>"""))
+  write(new File(javadocDir, 'overview-summary.html'), page('Overview', """<div class="contentContainer">
+<table class="overviewSummary" border="0" cellpadding="3" cellspacing="0" summary="Packages table, listing packages, and an explanation">
+<caption><span>Packages</span><span class="tabEnd">&nbsp;</span></caption>
+<tr>
+<th class="colFirst" scope="col">Package</th>
+<th class="colLast" scope="col">Description</th>
+</tr>
+<tbody>
+${javaPackages.withIndex().collect { p, i -> "<tr class=\"${i % 2 == 0 ? 'altColor' : 'rowColor'}\">\n<td class=\"colFirst\"><a href=\"${packagePath(p)}/package-summary.html\">${packageName(p)}</a></td>\n<td class=\"colLast\">&nbsp;</td>\n</tr>" }.join('\n')}
+</tbody>
+</table>
+</div>"""))
+  write(new File(javadocDir, 'package-list'), javaPackages.collect { packageName(it) }.join('\n') + '\n')
+
+  javaPackages.each { p ->
+    def classes = (0..<javaClassesPerPackage).collect { javaName(p, it) }
+    write(new File(javadocDir, "${packagePath(p)}/package-frame.html"), page(packageName(p), """<h1 class="bar"><a href="package-summary.html" target="classFrame">${packageName(p)}</a></h1>
+<div class="indexContainer">
+<h2 title="Classes">Classes</h2>
+<ul title="Classes">
+${classes.collect { "<li><a href=\"${it}.html\" title=\"class in ${packageName(p)}\" target=\"classFrame\">${it}</a></li>" }.join('\n')}
+</ul>
+</div>"""))
+    write(new File(javadocDir, "${packagePath(p)}/package-summary.html"), page(packageName(p), """<div class="header">
+<h1 title="Package" class="title">Package&nbsp;${packageName(p)}</h1>
+</div>
+<div class="contentContainer">
+<table class="typeSummary" border="0" cellpadding="3" cellspacing="0" summary="Class Summary table, listing classes, and an explanation">
+<caption><span>Class Summary</span><span class="tabEnd">&nbsp;</span></caption>
+<tr>
+<th class="colFirst" scope="col">Class</th>
+<th class="colLast" scope="col">Description</th>
+</tr>
+<tbody>
+${classes.withIndex().collect { c, i -> "<tr class=\"${i % 2 == 0 ? 'altColor' : 'rowColor'}\">\n<td class=\"colFirst\"><a href=\"${c}.html\" title=\"class in ${packageName(p)}\">${c}</a></td>\n<td class=\"colLast\">&nbsp;</td>\n</tr>" }.join('\n')}
+</tbody>
+</table>
+</div>"""))
+
+    // Each Java class refers to a Groovy class of its own package and of the next package
+    (0..<javaClassesPerPackage).each { c ->
+      int other = (p + 1) % packages
+      write(new File(javadocDir, "${packagePath(p)}/${javaName(p, c)}.html"), page(javaName(p, c), """<div class="header">
+<div class="subTitle">${packageName(p)}</div>
+<h2 title="Class ${javaName(p, c)}" class="title">Class ${javaName(p, c)}</h2>
+</div>
+<div class="contentContainer">
+<pre>public class <span class="typeNameLabel">${javaName(p, c)}</span>
+extends java.lang.Object</pre>
+<div class="block">Uses <code>${groovyName(p, c)}</code> and <code>${packageName(other)}.${groovyName(other, c)}</code>.</div>
+<dl>
+<dt><span class="seeLabel">See Also:</span></dt>
+<dd><code>java.util.List</code></dd>
+</dl>
+</div>"""))
+    }
+  }
+
+  // Groovydoc, including the index pages and the Java classes that are not copied
+  write(new File(groovydocDir, 'allclasses-frame.html'), page('All Classes', '<ul></ul>'))
+  write(new File(groovydocDir, 'stylesheet.css'), 'body { }\n')
+  (0..<packages).each { p ->
+    write(new File(groovydocDir, "${packagePath(p)}/package-summary.html"), page(packageName(p), ''))
+    (0..<groovyClassesPerPackage).each { c ->
+      String name = groovyName(p, c)
+      String referred = isGroovyOnly(p) ? 'java.lang.String' : "${packageName(p)}.${javaName(p, c)}"
+      write(new File(groovydocDir, "${packagePath(p)}/${name}.html"), page(name, """<div class="header">
+<div class="subTitle">Package: <strong>${packageName(p)}</strong></div>
+<h2 title="[Groovy] Class ${name}" class="title">[Groovy] Class ${name}</h2>
+</div>
+<div class="block"><p> Extends <code>${referred}</code>. </p></div>"""))
+    }
+    if (!isGroovyOnly(p)) {
+      write(new File(groovydocDir, "${packagePath(p)}/${javaName(p, 0)}.html"), page(javaName(p, 0), ''))
+    }
+  }
+}
+
+return true
@@ -0,0 +1,69 @@
+/*
+ * Checks the merged documents of both corpora, then the bytes of the index pages the merge of the
+ * large corpus parsed relative to the small one against budget.properties.
+ */
+
+def read = { File file ->
+  assert file.isFile(): "${file} does not exist"
+  file.getText('UTF-8')
+}
+
+[small: 10, large: 80].each { String corpus, int packages ->
+  File outputDir = new File(basedir, "target/merged-${corpus}")
+  String allClassesFrame = read(new File(outputDir, 'allclasses-frame.html'))
+  String allClassesNoFrame = read(new File(outputDir, 'allclasses-noframe.html'))
+  String overviewFrame = read(new File(outputDir, 'overview-frame.html'))
+  String overviewSummary = read(new File(outputDir, 'overview-summary.html'))
+
+  (0..<packages).each { p ->
+    String packagePath = "com/example/p${p}"
+    boolean groovyOnly = p % 5 == 4
+    String packageFrame = read(new File(outputDir, "${packagePath}/package-frame.html"))
+    String packageSummary = read(new File(outputDir, "${packagePath}/package-summary.html"))
+
+    // Every package is listed once, including those created by the merge
+    assert overviewFrame.count("href=\"${packagePath}/package-frame.html\"") == 1
+    assert overviewSummary.count("href=\"${packagePath}/package-summary.html\"") == 1
+    assert packageFrame.count('<h2 title="Classes">') == 1
+
+    (0..<10).each { c ->
+      String groovyClass = "P${p}Groovy${c}"
+      assert allClassesFrame.contains("href=\"${packagePath}/${groovyClass}.html\"")
+      assert allClassesNoFrame.contains("href=\"${packagePath}/${groovyClass}.html\"")
+      assert packageFrame.contains("href=\"./${groovyClass}.html\"")
+      assert packageSummary.contains("href=\"./${groovyClass}.html\"")
+
+      String groovyPage = read(new File(outputDir, "${packagePath}/${groovyClass}.html"))
+      if (groovyOnly) {
+        assert groovyPage.contains('href="https://docs.oracle.com/javase/8/docs/api/java/lang/String.html"')
+      } else {
+        String javaClass = "P${p}Java${c}"
+        assert groovyPage.contains("href=\"../../../${packagePath}/${javaClass}.html\"")
+
+        // Javadoc links to Groovy classes of its own and of the next package
+        String javaPage = read(new File(outputDir, "${packagePath}/${javaClass}.html"))
+        int other = (p + 1) % packages
+        assert javaPage.contains('class="typeNameLabel"'): "${javaClass} was overwritten by Groovydoc"
+        assert javaPage.contains("href=\"../../../${packagePath}/${groovyClass}.html\"")
+        assert javaPage.contains("href=\"../../../com/example/p${other}/P${other}Groovy${c}.html\"")
+        assert javaPage.contains('href="https://docs.oracle.com/javase/8/docs/api/java/util/List.html"')
+      }
+    }
+  }
+}
+
+// The executions log in the order of the pom: the small corpus, then the large one
+String buildLog = read(new File(basedir, 'build.log'))
+def indexBytes = (buildLog =~ /updated index pages of \d+ classes, parsed (\d+) bytes\./)
+    .collect { it[1] as long }
+assert indexBytes.size() == 2
+
+def budget = new Properties()
+new File(basedir, 'budget.properties').withInputStream { budget.load(it) }
+double scaling = indexBytes[1] / Math.max(indexBytes[0], 1L)
+double max = budget.getProperty('maxIndexBytesScaling') as double
+println String.format('IndexBytes: small %d, large %d, scaling %.1f (budget %.1f)',
+    indexBytes[0], indexBytes[1], scaling, max)
+assert scaling <= max: 'Index update of the large corpus is over budget'
+
+return true
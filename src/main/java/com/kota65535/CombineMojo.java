@@ -0,0 +1,119 @@
+package com.kota65535;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Goal which combines the outputs of a sharded merge into the merged API docs.
+ */
+@Mojo(name = "combine")
+public class CombineMojo extends AbstractMojo {
+
+  /**
+   * The outputDir of every shard of the merge goal.
+   */
+  @Parameter(property = "shardDirs", required = true)
+  private List<File> shardDirs;
+
+  /**
+   * The location for the merged API docs.
+   */
+  @Parameter(defaultValue = "${project.build.directory}", property = "outputDir", required = true)
+  private File outputDir;
+
+  public void execute() throws MojoExecutionException {
+    if (shardDirs == null || shardDirs.isEmpty()) {
+      throw new MojoExecutionException("no shard directories configured");
+    }
+
+    // Check that the shards cover all pages and agree on the plan
+    List<MergePlan> plans = new ArrayList<>();
+    try {
+      for (File shardDir : shardDirs) {
+        plans.add(MergePlan.read(shardDir));
+      }
+    } catch (IOException e) {
+      throw new MojoExecutionException("Failed to read merge plan", e);
+    }
+    MergePlan plan = plans.get(0);
+    boolean[] covered = new boolean[plan.getShardCount()];
+    for (MergePlan p : plans) {
+      if (!p.isCompatibleWith(plan)) {
+        throw new MojoExecutionException("Shards were merged from different inputs");
+      }
+      covered[p.getShardIndex()] = true;
+    }
+    for (int i = 0; i < covered.length; ++i) {
+      if (!covered[i]) {
+        throw new MojoExecutionException(String.format("Shard %d is missing", i));
+      }
+    }
+
+    // Initialize outputDir
+    if (outputDir.exists()) {
+      try {
+        FileUtils.deleteDirectory(outputDir);
+      } catch (IOException e) {
+        throw new MojoExecutionException("Failed to delete outputDir", e);
+      }
+    }
+    outputDir.mkdirs();
+
+    // Take all files from the first shard, then the pages each other shard rewrote. Every shard
+    // updated the index pages the same way, so the result equals a merge without shards.
+    try {
+      for (int i = 0; i < shardDirs.size(); ++i) {
+        copyShard(shardDirs.get(i), i == 0 ? null : plans.get(i));
+      }
+    } catch (IOException e) {
+      throw new MojoExecutionException("Failed to copy shards", e);
+    }
+
+    try {
+      ContentManifest.write(outputDir.toPath(), Runnable::run);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Failed to write content manifest", e);
+    }
+  }
+
+
+  /**
+   * @param plan plan of the shard to copy only the pages it owns, or null to copy all files
+   */
+  private void copyShard(File shardDir, MergePlan plan) throws IOException {
+    Path root = shardDir.toPath();
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        String relativePath = root.relativize(file).toString().replace(File.separator, "/");
+
+        // Do not carry over the state of the shard
+        if (relativePath.startsWith(".javadoc-merger")) {
+          return super.visitFile(file, attrs);
+        }
+        if (plan != null && !plan.ownsPage(relativePath)) {
+          return super.visitFile(file, attrs);
+        }
+
+        File destFile = new File(outputDir, relativePath);
+        destFile.getParentFile().mkdirs();
+        FileUtils.copyFile(file.toFile(), destFile);
+        return super.visitFile(file, attrs);
+      }
+    });
+    getLog().info(String.format("copied shard %s", shardDir));
+  }
+}
@@ -0,0 +1,86 @@
+package com.kota65535;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+
+/**
+ * SHA-256 hashes of the merged files in the format of sha256sum, sorted by path. Publishers can
+ * compare it with the manifest of the previous merge to upload only the files that changed.
+ */
+public class ContentManifest {
+
+  public static final String FILE_NAME = "SHA256SUMS";
+
+  // Files that record the state of the plugin, not the content of the docs
+  private static final String STATE_FILE_PREFIX = ".javadoc-merger";
+
+  private static final int BATCH_SIZE = 64;
+
+
+  private ContentManifest() {
+  }
+
+
+  /**
+   * Hashes the files of the directory on the executor and writes the manifest into it.
+   */
+  public static void write(Path dir, Executor executor) throws IOException {
+    List<String> paths = new ArrayList<>();
+    Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        String fileName = file.getFileName().toString();
+        if (!fileName.equals(FILE_NAME) && !fileName.startsWith(STATE_FILE_PREFIX)) {
+          paths.add(dir.relativize(file).toString().replace(File.separator, "/"));
+        }
+        return super.visitFile(file, attrs);
+      }
+    });
+    paths.sort(null);
+
+    String[] lines = new String[paths.size()];
+    List<CompletableFuture<Void>> batches = new ArrayList<>();
+    for (int i = 0; i < paths.size(); i += BATCH_SIZE) {
+      int start = i;
+      int end = Math.min(i + BATCH_SIZE, paths.size());
+      batches.add(CompletableFuture.runAsync(() -> {
+        for (int j = start; j < end; ++j) {
+          try {
+            String hash = MoreFiles.asByteSource(dir.resolve(paths.get(j)))
+                .hash(Hashing.sha256())
+                .toString();
+            lines[j] = hash + "  " + paths.get(j);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }
+      }, executor));
+    }
+    try {
+      CompletableFuture.allOf(batches.toArray(new CompletableFuture[0])).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) e.getCause()).getCause();
+      }
+      throw e;
+    }
+
+    Files.write(dir.resolve(FILE_NAME), Arrays.asList(lines), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,253 @@
+package com.kota65535;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+
+
+/**
+ * Copies Javadoc and Groovydoc into outputDir on the I/O executor. Both trees are walked at the
+ * same time, all directories are created before any file is copied, and files are copied in
+ * parallel batches. Class pages are read into memory while being copied and handed to a consumer,
+ * so that they can be indexed without reading them again. The memory budget caps the class pages
+ * held at the same time.
+ */
+public class DocumentCopier {
+
+  private static final int BATCH_SIZE = 64;
+
+  private static final String TRASH_SUFFIX = ".deleting";
+
+  private final Log log;
+
+  private final MergeExecutors executors;
+
+  private final MemoryBudget budget;
+
+  private final BiConsumer<String, byte[]> classPageConsumer;
+
+
+  /**
+   * @param classPageConsumer receives the link relative to outputDir and the content of each
+   *     class page copied. Called from multiple threads.
+   */
+  public DocumentCopier(Log log, MergeExecutors executors, MemoryBudget budget,
+      BiConsumer<String, byte[]> classPageConsumer) {
+    this.log = log;
+    this.executors = executors;
+    this.budget = budget;
+    this.classPageConsumer = classPageConsumer;
+  }
+
+
+  /**
+   * Moves the directory out of the way and deletes it in the background, so that a new directory
+   * can be created at its place right away. Deletes it synchronously if it cannot be moved. Also
+   * deletes the directories left behind by earlier merges that were killed while deleting.
+   *
+   * @return completes when the directory is deleted
+   */
+  public CompletableFuture<Void> deleteAsync(Path dir) throws IOException {
+    List<Path> leftovers = new ArrayList<>();
+    Path parent = dir.toAbsolutePath().getParent();
+    if (parent != null && Files.isDirectory(parent)) {
+      String prefix = String.format(".%s-", dir.getFileName());
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(parent,
+          p -> isTrashOf(p.getFileName().toString(), prefix))) {
+        stream.forEach(leftovers::add);
+      }
+    }
+    CompletableFuture<Void> leftoversDeleted = CompletableFuture.runAsync(() -> {
+      for (Path leftover : leftovers) {
+        try {
+          FileUtils.deleteDirectory(leftover.toFile());
+        } catch (IOException e) {
+          // Another merge may be deleting it
+          log.warn(String.format("failed to delete %s: %s", leftover, e));
+        }
+      }
+    }, executors.io());
+
+    if (!Files.exists(dir)) {
+      return leftoversDeleted;
+    }
+    Path trash = dir.resolveSibling(String.format(".%s-%s%s", dir.getFileName(),
+        UUID.randomUUID(), TRASH_SUFFIX));
+    try {
+      Files.move(dir, trash, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      log.debug(String.format("failed to move %s, deleting it in place: %s", dir, e));
+      FileUtils.deleteDirectory(dir.toFile());
+      return leftoversDeleted;
+    }
+    return CompletableFuture.runAsync(() -> {
+      try {
+        FileUtils.deleteDirectory(trash.toFile());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, executors.io()).thenCombine(leftoversDeleted, (a, b) -> null);
+  }
+
+
+  /**
+   * @return true if the file name is prefix + UUID + TRASH_SUFFIX, and not the one of a sibling
+   *     whose name starts with the same name
+   */
+  private static boolean isTrashOf(String fileName, String prefix) {
+    if (!fileName.startsWith(prefix) || !fileName.endsWith(TRASH_SUFFIX)) {
+      return false;
+    }
+    String id = fileName.substring(prefix.length(), fileName.length() - TRASH_SUFFIX.length());
+    try {
+      return UUID.fromString(id).toString().equals(id);
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+
+  /**
+   * Copies all files of Javadoc, and the class pages of Groovydoc that are missing in Javadoc.
+   *
+   * @return paths of the pages copied from Groovydoc relative to outputDir, in sorted order
+   */
+  public List<Path> copy(Path javadocDir, Path groovydocDir, Path outputDir) throws IOException {
+    CompletableFuture<Tree> javadocTree = walkAsync(javadocDir);
+    CompletableFuture<Tree> groovydocTree = walkAsync(groovydocDir);
+    Tree javadoc = join(javadocTree);
+    Tree groovydoc = join(groovydocTree);
+
+    // Copy only Groovydoc pages with a class name that Javadoc does not have
+    Set<Path> javadocFiles = new HashSet<>(javadoc.files);
+    List<Path> groovyPages = groovydoc.files.stream()
+        .filter(p -> !javadocFiles.contains(p))
+        .filter(p -> Character.isUpperCase(p.getFileName().toString().charAt(0)))
+        .sorted()
+        .collect(Collectors.toList());
+
+    // Parents sort before their children, so each directory is created once
+    SortedSet<Path> dirs = new TreeSet<>(javadoc.dirs);
+    groovyPages.stream()
+        .map(Path::getParent)
+        .filter(p -> p != null)
+        .forEach(dirs::add);
+    Files.createDirectories(outputDir);
+    for (Path dir : dirs) {
+      Files.createDirectories(outputDir.resolve(dir));
+    }
+
+    List<CompletableFuture<Void>> batches = new ArrayList<>();
+    batches.addAll(copyAsync(javadocDir, outputDir, javadoc.files));
+    batches.addAll(copyAsync(groovydocDir, outputDir, groovyPages));
+    join(CompletableFuture.allOf(batches.toArray(new CompletableFuture[0])));
+
+    groovyPages.forEach(p -> log.info(String.format("copied %s -> %s", groovydocDir.resolve(p),
+        outputDir.resolve(p))));
+    return groovyPages;
+  }
+
+
+  private CompletableFuture<Tree> walkAsync(Path root) {
+    return CompletableFuture.supplyAsync(() -> {
+      Tree tree = new Tree();
+      try {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+              throws IOException {
+            if (!dir.equals(root)) {
+              tree.dirs.add(root.relativize(dir));
+            }
+            return super.preVisitDirectory(dir, attrs);
+          }
+
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+              throws IOException {
+            tree.files.add(root.relativize(file));
+            return super.visitFile(file, attrs);
+          }
+        });
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return tree;
+    }, executors.io());
+  }
+
+
+  private List<CompletableFuture<Void>> copyAsync(Path sourceDir, Path outputDir,
+      List<Path> files) {
+    List<CompletableFuture<Void>> batches = new ArrayList<>();
+    for (int i = 0; i < files.size(); i += BATCH_SIZE) {
+      List<Path> batch = files.subList(i, Math.min(i + BATCH_SIZE, files.size()));
+      batches.add(CompletableFuture.runAsync(() -> {
+        try {
+          for (Path file : batch) {
+            String fileName = file.getFileName().toString();
+            if (Character.isUpperCase(fileName.charAt(0)) && fileName.endsWith(".html")) {
+              long reserved = budget.acquireRaw(Files.size(sourceDir.resolve(file)));
+              try {
+                byte[] content = Files.readAllBytes(sourceDir.resolve(file));
+                classPageConsumer.accept(file.toString().replace(File.separator, "/"), content);
+                Files.write(outputDir.resolve(file), content, StandardOpenOption.CREATE_NEW);
+              } finally {
+                budget.release(reserved);
+              }
+            } else {
+              Files.copy(sourceDir.resolve(file), outputDir.resolve(file));
+            }
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }, executors.io()));
+    }
+    return batches;
+  }
+
+
+  private static <T> T join(CompletableFuture<T> future) throws IOException {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) e.getCause()).getCause();
+      }
+      throw e;
+    }
+  }
+
+
+  /**
+   * Directories and files of a tree relative to its root.
+   */
+  private static class Tree {
+
+    private final List<Path> dirs = new ArrayList<>();
+
+    private final List<Path> files = new ArrayList<>();
+  }
+}
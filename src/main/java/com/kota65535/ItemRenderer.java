@@ -0,0 +1,112 @@
+package com.kota65535;
+
+
+/**
+ * Renders the list items and table rows added to index pages. The output is the same as the
+ * *Item.html.mustache templates would produce, written into a buffer reused between items.
+ */
+public class ItemRenderer {
+
+  private final StringBuilder buffer = new StringBuilder(256);
+
+
+  public String allClassesItem(String htmlLink, String packageName, String className) {
+    buffer.setLength(0);
+    buffer.append("<li>\n  <a href=\"");
+    escape(htmlLink);
+    buffer.append("\"\n     title=\"class in ");
+    escape(packageName);
+    buffer.append("\" target=\"classFrame\">");
+    escape(className);
+    buffer.append("</a>\n</li>\n");
+    return buffer.toString();
+  }
+
+
+  public String packageFrameItem(String htmlLink, String qualifiedClassName, String className) {
+    buffer.setLength(0);
+    buffer.append("<li>\n  <a href=\"");
+    escape(htmlLink);
+    buffer.append("\" title=\"class in ");
+    escape(qualifiedClassName);
+    buffer.append("\" target=\"classFrame\">");
+    escape(className);
+    buffer.append("</a>\n</li>");
+    return buffer.toString();
+  }
+
+
+  public String packageSummaryItem(String rowClass, String htmlLink, String qualifiedClassName,
+      String className) {
+    buffer.setLength(0);
+    buffer.append("<tr class=\"");
+    escape(rowClass);
+    buffer.append("\">\n  <td class=\"colFirst\"><a href=\"");
+    escape(htmlLink);
+    buffer.append("\" title=\"class in ");
+    escape(qualifiedClassName);
+    buffer.append("\">");
+    escape(className);
+    buffer.append("</a></td>\n  <td class=\"colLast\">&nbsp;</td>\n</tr>");
+    return buffer.toString();
+  }
+
+
+  public String overviewFrameItem(String htmlLink, String packageName) {
+    buffer.setLength(0);
+    buffer.append("<li>\n  <a href=\"");
+    escape(htmlLink);
+    buffer.append("\" target=\"packageFrame\">");
+    escape(packageName);
+    buffer.append("</a>\n</li>");
+    return buffer.toString();
+  }
+
+
+  public String overviewSummaryItem(String rowClass, String htmlLink, String packageName) {
+    buffer.setLength(0);
+    buffer.append("<tr class=\"");
+    escape(rowClass);
+    buffer.append("\">\n  <td class=\"colFirst\"><a href=\"");
+    escape(htmlLink);
+    buffer.append("\">");
+    escape(packageName);
+    buffer.append("</a></td>\n  <td class=\"colLast\">&nbsp;</td>\n</tr>");
+    return buffer.toString();
+  }
+
+
+  /**
+   * Appends the value escaped in the same way as the default HTML escaper of JMustache.
+   */
+  private void escape(String value) {
+    for (int i = 0; i < value.length(); ++i) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '&':
+          buffer.append("&amp;");
+          break;
+        case '\'':
+          buffer.append("&#39;");
+          break;
+        case '"':
+          buffer.append("&quot;");
+          break;
+        case '<':
+          buffer.append("&lt;");
+          break;
+        case '>':
+          buffer.append("&gt;");
+          break;
+        case '`':
+          buffer.append("&#x60;");
+          break;
+        case '=':
+          buffer.append("&#x3D;");
+          break;
+        default:
+          buffer.append(c);
+      }
+    }
+  }
+}
@@ -1,20 +1,29 @@
 package com.kota65535;
 
 
+import com.kota65535.event.MergeEvents;
+import com.kota65535.event.MergeEvents.Span;
+import com.kota65535.resolver.ClassIndex;
 import com.kota65535.resolver.CoreApiLinkResolver;
+import com.kota65535.resolver.LinkResolverBase;
+import com.kota65535.resolver.MemberIndex;
 import com.kota65535.resolver.ProjectLinkResolver;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.codehaus.plexus.util.FileUtils;
 
 /**
  * Goal which merges Javadoc and Groovydoc.
@@ -22,6 +31,9 @@ import org.codehaus.plexus.util.FileUtils;
 @Mojo(name = "merge")
 public class JavadocMergerMojo extends AbstractMojo {
 
+  // Groovy core API classes are in the groovy package and its subpackages
+  private static final byte[] GROOVY_API_PACKAGE = "groovy.".getBytes(StandardCharsets.US_ASCII);
+
   /**
    * The location of input Javadoc.
    */
@@ -34,6 +46,14 @@ public class JavadocMergerMojo extends AbstractMojo {
   @Parameter(property = "javaVersion", defaultValue = "11")
   private String javaVersion;
 
+  /**
+   * Whether to link Java and Groovy class names to their core API documents. Disabling it skips
+   * scanning the core API classes. Groovy ones are scanned only if a class page refers to the
+   * groovy package.
+   */
+  @Parameter(property = "linkCoreApi", defaultValue = "true")
+  private boolean linkCoreApi;
+
   /**
    * The location of input Groovydoc.
    */
@@ -52,74 +72,284 @@ public class JavadocMergerMojo extends AbstractMojo {
   @Parameter(defaultValue = "${project.build.directory}", property = "outputDir", required = true)
   private File outputDir;
 
+  /**
+   * Maximum heap in megabytes that documents being processed at the same time may use.
+   */
+  @Parameter(property = "memoryBudget", defaultValue = "256")
+  private long memoryBudget;
+
+  /**
+   * Number of threads used to parse and rewrite pages. 0 uses the number of available processors.
+   */
+  @Parameter(property = "threads", defaultValue = "0")
+  private int threads;
+
+  /**
+   * Whether to read and write pages on virtual threads. Falls back to platform threads on JDKs
+   * prior to 21.
+   */
+  @Parameter(property = "useVirtualThreads", defaultValue = "false")
+  private boolean useVirtualThreads;
+
+  /**
+   * Whether to merge even if outputDir was merged from the same inputs.
+   */
+  @Parameter(property = "force", defaultValue = "false")
+  private boolean force;
+
+  /**
+   * Index of the shard rewritten by this execution, from 0 to shardCount - 1.
+   */
+  @Parameter(property = "shardIndex", defaultValue = "0")
+  private int shardIndex;
+
+  /**
+   * Number of shards to split the pages into. When more than 1, this execution rewrites only the
+   * pages of its shard, and the combine goal puts the shards together.
+   */
+  @Parameter(property = "shardCount", defaultValue = "1")
+  private int shardCount;
+
+  /**
+   * Whether to minify the merged pages by dropping comments and collapsing whitespace outside
+   * preformatted text.
+   */
+  @Parameter(property = "minify", defaultValue = "false")
+  private boolean minify;
+
+  @Parameter(defaultValue = "${plugin.version}", readonly = true)
+  private String pluginVersion;
+
   private JavadocUpdater javadocUpdater;
 
   public void execute() throws MojoExecutionException {
-    javadocUpdater = new JavadocUpdater(getLog(), outputDir);
+    if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+      throw new MojoExecutionException(
+          String.format("Invalid shard %d of %d", shardIndex, shardCount));
+    }
+    boolean sharded = shardCount > 1;
 
-    // Initialize outputDir
-    if (outputDir.exists()) {
-      try {
-        FileUtils.deleteDirectory(outputDir);
+    String fingerprint;
+    try {
+      fingerprint = fingerprint();
+      if (!force && MergeFingerprint.isUpToDate(outputDir, fingerprint)) {
+        getLog().info(String.format("%s is up to date, skipping merge.", outputDir));
+        return;
+      }
+    } catch (IOException e) {
+      throw new MojoExecutionException("Failed to fingerprint inputs", e);
+    }
+
+    long start = System.currentTimeMillis();
+    PageSerializer serializer = new PageSerializer(minify);
+    javadocUpdater = new JavadocUpdater(getLog(), outputDir, serializer);
 
+    MemoryBudget budget = new MemoryBudget(memoryBudget * 1024 * 1024);
+    try (MergeExecutors executors = new MergeExecutors(getLog(), threads, useVirtualThreads)) {
+      ProjectLinkResolver projectLinkResolver = new ProjectLinkResolver(getLog(), outputDir,
+          javadocDir);
+      // Groovy core API classes are only scanned if a class page refers to them
+      CompletableFuture<Boolean> linkGroovyApi = new CompletableFuture<>();
+      List<LinkResolverBase> resolvers = new ArrayList<>();
+      resolvers.add(projectLinkResolver);
+      CoreApiLinkResolver coreApiLinkResolver = null;
+      if (linkCoreApi) {
+        coreApiLinkResolver = new CoreApiLinkResolver(getLog(), outputDir, javaVersion,
+            groovyVersion);
+        resolvers.add(coreApiLinkResolver);
+      }
+
+      // Index members and look for Groovy core API classes in the class pages being copied
+      MemberIndex.Builder members = new MemberIndex.Builder();
+      AtomicBoolean refersGroovyApi = new AtomicBoolean();
+      DocumentCopier copier = new DocumentCopier(getLog(), executors, budget,
+          (page, content) -> {
+            members.add(page, content);
+            if (!refersGroovyApi.get() && refersGroovyApi(content)) {
+              refersGroovyApi.set(true);
+            }
+          });
+
+      // Delete the previous output in the background
+      CompletableFuture<Void> deleted;
+      try {
+        deleted = copier.deleteAsync(outputDir.toPath());
       } catch (IOException e) {
         throw new MojoExecutionException("Failed to delete outputDir", e);
       }
+
+      // Build the dictionaries while copying documents. Groovy core API classes are added once
+      // the copy tells whether they are needed, without a thread waiting for it.
+      List<CompletableFuture<Void>> preparing = new ArrayList<>();
+      preparing.add(prepareAsync(projectLinkResolver, executors));
+      if (coreApiLinkResolver != null) {
+        CoreApiLinkResolver resolver = coreApiLinkResolver;
+        preparing.add(prepareAsync(resolver, executors)
+            .thenAcceptBothAsync(linkGroovyApi, (v, link) -> {
+              if (link) {
+                try (Span span = MergeEvents.get().phase("prepare", "GroovyApi")) {
+                  span.setCount(resolver.prepareGroovyApi());
+                }
+              }
+            }, executors.cpu()));
+      }
+      CompletableFuture<Void> prepared = CompletableFuture.allOf(
+          preparing.toArray(new CompletableFuture[0]));
+
+      List<File> groovyFiles;
+      try (Span span = MergeEvents.get().phase("copy", outputDir.toString())) {
+        groovyFiles = copy(copier);
+        span.setCount(groovyFiles.size());
+      } finally {
+        // Also on failure, so that preparing does not wait forever
+        linkGroovyApi.complete(refersGroovyApi.get());
+      }
+
+      try {
+        prepared.join();
+      } catch (CompletionException e) {
+        throw new MojoExecutionException("Failed to prepare links.", e.getCause());
+      }
+      try {
+        deleted.join();
+      } catch (CompletionException e) {
+        throw new MojoExecutionException("Failed to delete outputDir", e.getCause());
+      }
+      projectLinkResolver.addClasses(groovyFiles.stream()
+          .map(javadocUpdater::getQualifiedName)
+          .collect(Collectors.toList()));
+      projectLinkResolver.setMemberIndex(members.build());
+
+      // Every shard updates the index pages the same way, but rewrites only the pages it owns
+      ClassIndex classIndex = projectLinkResolver.getClassIndex();
+      Predicate<Path> pageFilter = p -> true;
+      if (sharded) {
+        MergePlan plan = new MergePlan(shardIndex, shardCount, classIndex);
+        plan.write(outputDir);
+        pageFilter = p -> plan.ownsPage(toRelativePath(p));
+        getLog().info(String.format("rewriting shard %d of %d.", shardIndex, shardCount));
+      }
+
+      new PagePipeline(getLog(), budget, executors, resolvers, pageFilter, serializer)
+          .run(outputDir.toPath());
+
+      // Let other modules link to the merged classes
+      classIndex.write(outputDir);
+      for (String unlisted : classIndex.writePackageLists(outputDir)) {
+        getLog().warn(String.format("package %s is not added to the modular element-list.",
+            unlisted));
+      }
+
+      // Shards are hashed once they are combined
+      if (!sharded) {
+        try {
+          ContentManifest.write(outputDir.toPath(), executors.io());
+        } catch (IOException e) {
+          throw new MojoExecutionException("Failed to write content manifest", e);
+        }
+      }
+    } catch (IOException e) {
+      throw new MojoExecutionException("Failed to update links.", e);
     }
-    outputDir.mkdirs();
 
-    // Copy all javadoc files
     try {
-      FileUtils.copyDirectoryStructure(javadocDir, outputDir);
+      MergeFingerprint.store(outputDir, fingerprint);
     } catch (IOException e) {
-      throw new MojoExecutionException("Failed to copy javadoc", e);
+      throw new MojoExecutionException("Failed to store fingerprint", e);
     }
+    getLog().info(String.format("merged %s in %d ms.", outputDir,
+        System.currentTimeMillis() - start));
+  }
+
+
+  /**
+   * Fingerprints everything the merged documents depend on.
+   */
+  private String fingerprint() throws IOException {
+    return new MergeFingerprint()
+        .putDirectory("javadocDir", javadocDir)
+        .putDirectory("groovydocDir", groovydocDir)
+        .putParameter("javaVersion", javaVersion)
+        .putParameter("groovyVersion", groovyVersion)
+        .putParameter("linkCoreApi", linkCoreApi)
+        .putParameter("minify", minify)
+        .putParameter("shardIndex", shardIndex)
+        .putParameter("shardCount", shardCount)
+        .putParameter("pluginVersion", pluginVersion)
+        // The core API dictionary is generated from the running JDK
+        .putParameter("javaRuntime", System.getProperty("java.specification.version"))
+        .hash();
+  }
+
+
+  private String toRelativePath(Path file) {
+    return outputDir.toPath().relativize(file).toString().replace(File.separator, "/");
+  }
+
+
+  /**
+   * Copies Javadoc and Groovydoc into outputDir.
+   *
+   * @return pages copied from Groovydoc
+   */
+  private List<File> copy(DocumentCopier copier) throws MojoExecutionException {
+    long start = System.currentTimeMillis();
 
-    // Copy groovydoc file if not exists
+    List<File> groovyFiles;
     try {
-      Files.walkFileTree(groovydocDir.toPath(), new SimpleFileVisitor<Path>() {
-        @Override
-        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-
-          // Do nothing if javadoc already exists
-          File destFile = new File(
-              file.toString().replace(groovydocDir.toString(), outputDir.toString()));
-          if (destFile.exists()) {
-            return super.visitFile(file, attrs);
-          }
-
-          // Copy only groovydoc file (with class name)
-          if (!Character.isUpperCase(file.getFileName().toString().charAt(0))) {
-            return super.visitFile(file, attrs);
-          }
-
-          // Copy groovydoc
-          if (!destFile.getParentFile().exists()) {
-            destFile.getParentFile().mkdirs();
-          }
-          FileUtils.copyFile(file.toFile(), destFile);
-          getLog().info(String.format("copied %s -> %s", file.toString(), destFile));
-
-          // Update javadoc
-          javadocUpdater.update(destFile);
-
-          return super.visitFile(file, attrs);
-        }
-      });
+      groovyFiles = copier.copy(javadocDir.toPath(), groovydocDir.toPath(), outputDir.toPath())
+          .stream()
+          .map(p -> new File(outputDir, p.toString()))
+          .collect(Collectors.toList());
     } catch (IOException e) {
-      throw new MojoExecutionException("Failed to copy groovdoc", e);
+      throw new MojoExecutionException("Failed to copy documents", e);
     }
 
-    ProjectLinkResolver projectLinkResolver = new ProjectLinkResolver(getLog(), outputDir);
-    CoreApiLinkResolver javaLinkResolver = new CoreApiLinkResolver(getLog(), outputDir, javaVersion,
-        groovyVersion);
-
+    // Update javadoc
     try {
-      projectLinkResolver.update();
-      javaLinkResolver.update();
+      javadocUpdater.update(groovyFiles);
     } catch (IOException e) {
-      throw new MojoExecutionException("Failed to update links.", e);
+      throw new MojoExecutionException("Failed to update index pages", e);
     }
+    // Checked by the large corpus IT, it grows linearly with the number of classes
+    getLog().debug(String.format("updated index pages of %d classes, parsed %d bytes.",
+        groovyFiles.size(), javadocUpdater.getParsedBytes()));
+    getLog().info(String.format("copied %d Groovydoc pages in %d ms.", groovyFiles.size(),
+        System.currentTimeMillis() - start));
+    return groovyFiles;
+  }
 
+
+  /**
+   * @return true if the raw page refers to the groovy package or its subpackages
+   */
+  private static boolean refersGroovyApi(byte[] content) {
+    int last = content.length - GROOVY_API_PACKAGE.length;
+    outer:
+    for (int i = 0; i <= last; ++i) {
+      // Skip names that only end with groovy, like org.codehaus.groovy.
+      if (i > 0 && Character.isJavaIdentifierPart((char) (content[i - 1] & 0xff))) {
+        continue;
+      }
+      for (int j = 0; j < GROOVY_API_PACKAGE.length; ++j) {
+        if (content[i + j] != GROOVY_API_PACKAGE[j]) {
+          continue outer;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+
+  private CompletableFuture<Void> prepareAsync(LinkResolverBase resolver,
+      MergeExecutors executors) {
+    return CompletableFuture.runAsync(() -> {
+      try (Span span = MergeEvents.get().phase("prepare", resolver.getClass().getSimpleName())) {
+        span.setCount(resolver.prepare());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, executors.cpu());
   }
 }
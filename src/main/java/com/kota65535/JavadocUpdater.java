@@ -1,17 +1,20 @@
 package com.kota65535;
 
-import com.google.common.io.Resources;
-import com.samskivert.mustache.Mustache;
-import com.samskivert.mustache.Template;
+import com.kota65535.event.MergeEvents;
+import com.kota65535.event.MergeEvents.Span;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.maven.plugin.logging.Log;
@@ -35,82 +38,70 @@ public class JavadocUpdater {
 
   private static final String ALL_CLASSES_NOFRAME = "allclasses-noframe.html";
 
-  private Template packageSummaryTemplate;
-
-  private Template packageFrameTemplate;
-
-  private Template packageSummaryItemTemplate;
-
-  private Template packageFrameItemTemplate;
-
-  private Template overviewSummaryItemTemplate;
-
-  private Template overviewFrameItemTemplate;
-
-  private Template allClassesItemTemplate;
+  private final ItemRenderer itemRenderer = new ItemRenderer();
 
   private Log log;
 
   private File outputDir;
 
+  private final PageSerializer serializer;
 
-  public JavadocUpdater(Log log, File outputDir) {
+  private long parsedBytes;
+
+
+  public JavadocUpdater(Log log, File outputDir, PageSerializer serializer) {
     this.log = log;
     this.outputDir = outputDir;
-    try {
-      packageSummaryTemplate = Mustache.compiler().compile(Resources.toString(
-          Resources.getResource("packageSummary.html.mustache"), StandardCharsets.UTF_8));
-      packageFrameTemplate = Mustache.compiler().compile(Resources.toString(
-          Resources.getResource("packageFrame.html.mustache"), StandardCharsets.UTF_8));
-      packageSummaryItemTemplate = Mustache.compiler().compile(Resources.toString(
-          Resources.getResource("packageSummaryItem.html.mustache"), StandardCharsets.UTF_8));
-      packageFrameItemTemplate = Mustache.compiler().compile(Resources.toString(
-          Resources.getResource("packageFrameItem.html.mustache"), StandardCharsets.UTF_8));
-      overviewSummaryItemTemplate = Mustache.compiler().compile(Resources.toString(
-          Resources.getResource("overviewSummaryItem.html.mustache"), StandardCharsets.UTF_8));
-      overviewFrameItemTemplate = Mustache.compiler().compile(Resources.toString(
-          Resources.getResource("overviewFrameItem.html.mustache"), StandardCharsets.UTF_8));
-      allClassesItemTemplate = Mustache.compiler().compile(Resources.toString(
-          Resources.getResource("allClassesItem.html.mustache"), StandardCharsets.UTF_8));
-    } catch (IOException e) {
-      throw new RuntimeException("Failed to initialize", e);
-    }
+    this.serializer = serializer;
   }
 
 
-  public void update(File destFile) throws IOException {
-
-    boolean shouldCreatePackage = false;
-
-    // Create package-summary if not exists
-    File packageSummaryHtml = new File(destFile.getParent(), PACKAGE_SUMMARY);
-    if (!packageSummaryHtml.exists()) {
-      packageSummaryHtml = createPackageSummary(destFile);
-      shouldCreatePackage = true;
+  /**
+   * Adds the classes to the index pages. Each index page is parsed and written once however many
+   * classes are added to it, so the cost grows linearly with the number of classes.
+   */
+  public void update(List<File> destFiles) throws IOException {
+    if (destFiles.isEmpty()) {
+      return;
     }
-    // Update package-summary.html
-    updatePackageSummary(packageSummaryHtml, destFile);
 
-    // Create package-frame if not exists
-    File packageFrameHtml = new File(destFile.getParent(), PACKAGE_FRAME);
-    if (!packageFrameHtml.exists()) {
-      packageFrameHtml = createPackageFrame(destFile);
-      shouldCreatePackage = true;
+    Map<File, List<File>> packages = new TreeMap<>();
+    destFiles.forEach(f -> packages.computeIfAbsent(f.getParentFile(), k -> new ArrayList<>())
+        .add(f));
+
+    // Create or update package-summary and package-frame
+    List<String> createdPackages = new ArrayList<>();
+    for (List<File> classes : packages.values()) {
+      if (updatePackage(classes)) {
+        createdPackages.add(getPackageName(classes.get(0)));
+      }
     }
-    // Update package-frame.html
-    updatePackageFrame(packageFrameHtml, destFile);
 
-    // Update overview if package is created
-    if (shouldCreatePackage) {
-      updateOverview(destFile);
+    // Update overview if packages are created
+    if (!createdPackages.isEmpty()) {
+      updateOverviewFrame(createdPackages);
+      updateOverviewSummary(createdPackages);
     }
 
     // Update all classes list
-    updateAllClasses(destFile);
+    List<String> qualifiedNames = destFiles.stream()
+        .map(this::getQualifiedName)
+        .collect(Collectors.toList());
+    updateAllClasses(qualifiedNames, ALL_CLASSES_FRAME);
+    updateAllClasses(qualifiedNames, ALL_CLASSES_NOFRAME);
+  }
+
+
+  /**
+   * @return number of bytes of the pages parsed so far, which grows linearly with the number of
+   * classes updated
+   */
+  public long getParsedBytes() {
+    return parsedBytes;
   }
 
 
-  private String getQualifiedName(File target) {
+  public String getQualifiedName(File target) {
     return FilenameUtils.removeExtension(target.toString())
         .replace(outputDir.toString(), "")
         .replace(File.separator, ".")
@@ -136,7 +127,7 @@ public class JavadocUpdater {
     context.put("packageName", packageName);
     context.put("packagePath", packageName.replace(".", "/"));
     context.put("rel", relRoot);
-    String rendered = packageSummaryTemplate.execute(context);
+    String rendered = PageTemplates.PACKAGE_SUMMARY.execute(context);
 
     File packageSummary = new File(target.getParent(), PACKAGE_SUMMARY);
     Files.write(packageSummary.toPath(), rendered.getBytes(StandardCharsets.UTF_8));
@@ -156,7 +147,7 @@ public class JavadocUpdater {
     Map<String, String> context = new HashMap<>();
     context.put("packageName", packageName);
     context.put("rel", relRoot);
-    String rendered = packageFrameTemplate.execute(context);
+    String rendered = PageTemplates.PACKAGE_FRAME.execute(context);
 
     File packageFrame = new File(target.getParent(), PACKAGE_FRAME);
     Files.write(packageFrame.toPath(), rendered.getBytes(StandardCharsets.UTF_8));
@@ -166,23 +157,43 @@ public class JavadocUpdater {
   }
 
 
-  private void updatePackageSummary(File packageSummary, File target) throws IOException {
-    Document packageSummaryDoc = Jsoup.parse(packageSummary, StandardCharsets.UTF_8.name());
+  /**
+   * @param targets classes of the same package
+   * @return true if the package pages are created
+   */
+  private boolean updatePackage(List<File> targets) throws IOException {
+    boolean shouldCreatePackage = false;
+    File target = targets.get(0);
+
+    // Create package-summary if not exists
+    File packageSummary = new File(target.getParent(), PACKAGE_SUMMARY);
+    if (!packageSummary.exists()) {
+      packageSummary = createPackageSummary(target);
+      shouldCreatePackage = true;
+    }
+
+    // Create package-frame if not exists
+    File packageFrame = new File(target.getParent(), PACKAGE_FRAME);
+    if (!packageFrame.exists()) {
+      packageFrame = createPackageFrame(target);
+      shouldCreatePackage = true;
+    }
+
+    Document packageSummaryDoc = parse(packageSummary);
+    Document packageFrameDoc = parse(packageFrame);
 
     // Get last row element of the table
     Element tableBody = packageSummaryDoc.select("table[class=typeSummary]")
         .select("tbody").get(1);
+    Element indexContainer = packageFrameDoc.select("div[class=indexContainer").first();
+    Map<String, Element> sectionLists = new TreeMap<>();
 
-    // Create table item
-    Map<String, String> context = new HashMap<>();
-    context.put("htmlLink", String.format("./%s", target.getName()));
-    context.put("qualifiedClassName", FilenameUtils.getBaseName(target.toString()));
-    context.put("className", FilenameUtils.getBaseName(target.toString()));
-    context.put("rowClass", "rowColor");
-    String rendered = packageSummaryItemTemplate.execute(context);
-
-    // Add item to the table
-    tableBody.append(rendered);
+    for (File t : targets) {
+      try (Span span = MergeEvents.get().indexUpdate(getQualifiedName(t))) {
+        addPackageSummaryItem(tableBody, t);
+        addPackageFrameItem(indexContainer, sectionLists, t);
+      }
+    }
 
     // Sort table rows
     Elements trs = tableBody.select("tr");
@@ -192,15 +203,39 @@ public class JavadocUpdater {
 
     tableBody.html(trs.outerHtml());
 
-    Files.write(packageSummary.toPath(), packageSummaryDoc.outerHtml().getBytes(StandardCharsets.UTF_8));
+    Files.write(packageSummary.toPath(), serializer.serialize(packageSummaryDoc));
 
     log.info(String.format("updated %s", packageSummary));
+
+    // Sort list items of the sections classes are added to
+    for (Element sectionList : sectionLists.values()) {
+      Elements lis = sectionList.select("li");
+      lis.sort(Comparator.comparing(o -> o.select("a").first().text()));
+      sectionList.html(lis.outerHtml());
+    }
+
+    Files.write(packageFrame.toPath(), serializer.serialize(packageFrameDoc));
+
+    log.info(String.format("updated %s", packageFrame));
+
+    return shouldCreatePackage;
+  }
+
+
+  private void addPackageSummaryItem(Element tableBody, File target) {
+    // Create table item
+    String className = FilenameUtils.getBaseName(target.toString());
+    String rendered = itemRenderer.packageSummaryItem(
+        "rowColor", String.format("./%s", target.getName()), className, className);
+
+    // Add item to the table
+    tableBody.append(rendered);
   }
 
 
-  private void updatePackageFrame(File packageFrame, File target) throws IOException {
-    Document packageFrameDoc = Jsoup.parse(packageFrame, StandardCharsets.UTF_8.name());
-    Document targetDoc = Jsoup.parse(target, StandardCharsets.UTF_8.name());
+  private void addPackageFrameItem(Element indexContainer, Map<String, Element> sectionLists,
+      File target) throws IOException {
+    Document targetDoc = parse(target);
 
     // Get class type of target
     String type = targetDoc.select("h2").text();
@@ -211,106 +246,74 @@ public class JavadocUpdater {
         .orElseThrow(
             () -> new NoSuchElementException(String.format("Unknown class type %s", type)));
 
-    Element indexContainer = packageFrameDoc.select("div[class=indexContainer").first();
-
     // Search section of the class type
     Element targetSectionTitle = indexContainer
         .select(String.format("h2[title=%s]", sectionTitle))
         .first();
-    Element targetSectionList = indexContainer
-        .select(String.format("ul[title=%s]", sectionTitle))
-        .first();
 
     // Create section of the class type if not exists
     if (targetSectionTitle == null) {
       indexContainer.append(
           String.format("<h2 title=\"%1$s\">%1$s</h2><ul title=\"%1$s\"></ul>", sectionTitle));
-      targetSectionList = indexContainer
-          .select(String.format("ul[title=%s]", sectionTitle))
-          .first();
     }
+    Element targetSectionList = indexContainer
+        .select(String.format("ul[title=%s]", sectionTitle))
+        .first();
 
     // Create list item
-    Map<String, String> context = new HashMap<>();
-    context.put("htmlLink", String.format("./%s", target.getName()));
-    context.put("qualifiedClassName", FilenameUtils.getBaseName(target.toString()));
-    context.put("className", FilenameUtils.getBaseName(target.toString()));
-    String rendered = packageFrameItemTemplate.execute(context);
+    String className = FilenameUtils.getBaseName(target.toString());
+    String rendered = itemRenderer.packageFrameItem(
+        String.format("./%s", target.getName()), className, className);
 
     // Add item to the section
     targetSectionList.append(rendered);
-
-    // Sort list items
-    Elements lis = targetSectionList.select("li");
-    lis.sort(Comparator.comparing(o -> o.select("a").first().text()));
-
-    targetSectionList.html(lis.outerHtml());
-
-    Files.write(packageFrame.toPath(), packageFrameDoc.outerHtml().getBytes(StandardCharsets.UTF_8));
-
-    log.info(String.format("updated %s", packageFrame));
+    sectionLists.put(sectionTitle, targetSectionList);
   }
 
 
-  private void updateOverview(File target) throws IOException {
-    String packageName = getPackageName(target);
-    updateOverviewFrame(packageName);
-    updateOverviewSummary(packageName);
-  }
-
-
-  private void updateOverviewSummary(String packageName) throws IOException {
+  private void updateOverviewSummary(List<String> packageNames) throws IOException {
     File overviewFrame = new File(outputDir, OVERVIEW_SUMMARY);
-    Document overviewFrameDoc = Jsoup.parse(overviewFrame, StandardCharsets.UTF_8.name());
+    Document overviewFrameDoc = parse(overviewFrame);
 
     // Get last row element of the table
     Element tableBody = overviewFrameDoc.select("table[class=overviewSummary]")
         .select("tbody").get(1);
 
-    // Determine the class of the new table item
-    Element lastRow = tableBody.select("tr").last();
-    String rowClass = "altColor";
-    if (lastRow != null) {
-      String lastRowClass = lastRow.attr("class");
-      rowClass = lastRowClass.equals("rowColor") ? "altColor" : "rowColor";
-    }
-
-    String htmlLink = packageName.replace(".", "/") + "/package-summary.html";
+    for (String packageName : packageNames) {
+      String htmlLink = packageName.replace(".", "/") + "/package-summary.html";
 
-    // Create table item
-    Map<String, String> context = new HashMap<>();
-    context.put("htmlLink", htmlLink);
-    context.put("packageName", packageName);
-    context.put("rowClass", rowClass);
-    String rendered = overviewSummaryItemTemplate.execute(context);
+      // Create table item
+      String rendered = itemRenderer.overviewSummaryItem("rowColor", htmlLink, packageName);
 
-    tableBody.append(rendered);
+      tableBody.append(rendered);
+    }
 
-    // Sort table rows
+    // Sort table rows, then stripe them again so the result does not depend on the update order
     Elements trs = tableBody.select("tr");
     trs.sort(Comparator.comparing(o -> o.select("a").first().text()));
+    IntStream.range(0, trs.size()).forEach(i ->
+        trs.get(i).attr("class", i % 2 == 0 ? "altColor" : "rowColor"));
     tableBody.html(trs.outerHtml());
 
-    Files.write(overviewFrame.toPath(), overviewFrameDoc.outerHtml().getBytes(StandardCharsets.UTF_8));
+    Files.write(overviewFrame.toPath(), serializer.serialize(overviewFrameDoc));
 
     log.info(String.format("updated %s", overviewFrame.toString()));
   }
 
 
-  private void updateOverviewFrame(String packageName) throws IOException {
+  private void updateOverviewFrame(List<String> packageNames) throws IOException {
     File overviewFrame = new File(outputDir, OVERVIEW_FRAME);
-    Document overviewFrameDoc = Jsoup.parse(overviewFrame, StandardCharsets.UTF_8.name());
+    Document overviewFrameDoc = parse(overviewFrame);
     Element packageList = overviewFrameDoc.select("div[class=indexContainer] ul").first();
 
-    String htmlLink = packageName.replace(".", "/") + "/package-frame.html";
+    for (String packageName : packageNames) {
+      String htmlLink = packageName.replace(".", "/") + "/package-frame.html";
 
-    // Create table item
-    Map<String, String> context = new HashMap<>();
-    context.put("htmlLink", htmlLink);
-    context.put("packageName", packageName);
-    String rendered = overviewFrameItemTemplate.execute(context);
+      // Create table item
+      String rendered = itemRenderer.overviewFrameItem(htmlLink, packageName);
 
-    packageList.append(rendered);
+      packageList.append(rendered);
+    }
 
     // Sort list items
     Elements lis = packageList.select("li");
@@ -318,46 +321,42 @@ public class JavadocUpdater {
 
     packageList.html(lis.outerHtml());
 
-    Files.write(overviewFrame.toPath(), overviewFrameDoc.outerHtml().getBytes(StandardCharsets.UTF_8));
+    Files.write(overviewFrame.toPath(), serializer.serialize(overviewFrameDoc));
 
     log.info(String.format("updated %s", overviewFrame.toString()));
   }
 
 
-  private void updateAllClasses(File target) throws IOException {
-    String qualifiedName = getQualifiedName(target);
-    updateAllClasses(qualifiedName, ALL_CLASSES_FRAME);
-    updateAllClasses(qualifiedName, ALL_CLASSES_NOFRAME);
-  }
-
-
-  private void updateAllClasses(String qualifiedName, String fileName) throws IOException {
+  private void updateAllClasses(List<String> qualifiedNames, String fileName)
+      throws IOException {
     File allClassesFrame = new File(outputDir, fileName);
-    Document allClassesDoc = Jsoup.parse(allClassesFrame, StandardCharsets.UTF_8.name());
+    Document allClassesDoc = parse(allClassesFrame);
     Element classList = allClassesDoc.select("div[class=indexContainer] ul").first();
 
-    String htmlLink = qualifiedName.replace(".", "/") + ".html";
-    String className = qualifiedName.substring(qualifiedName.lastIndexOf(".") + 1);
-    String packageName = qualifiedName.substring(0, qualifiedName.lastIndexOf("."));
+    for (String qualifiedName : qualifiedNames) {
+      String htmlLink = qualifiedName.replace(".", "/") + ".html";
+      String className = qualifiedName.substring(qualifiedName.lastIndexOf(".") + 1);
+      String packageName = qualifiedName.substring(0, qualifiedName.lastIndexOf("."));
 
-    // Create table item
-    Map<String, String> context = new HashMap<>();
-    context.put("htmlLink", htmlLink);
-    context.put("packageName", packageName);
-    context.put("className", className);
-    String rendered = allClassesItemTemplate.execute(context);
+      // Create table item
+      String rendered = itemRenderer.allClassesItem(htmlLink, packageName, className);
 
-    classList.append(rendered);
+      classList.append(rendered);
+    }
 
     // Sort list items
     Elements lis = classList.select("li");
     lis.sort(Comparator.comparing(o -> o.select("a").first().text()));
     classList.html(lis.outerHtml());
 
-    Files.write(allClassesFrame.toPath(), allClassesDoc.outerHtml().getBytes(StandardCharsets.UTF_8));
+    Files.write(allClassesFrame.toPath(), serializer.serialize(allClassesDoc));
 
     log.info(String.format("updated %s", allClassesFrame.toString()));
   }
 
 
+  private Document parse(File file) throws IOException {
+    parsedBytes += file.length();
+    return Jsoup.parse(file, StandardCharsets.UTF_8.name());
+  }
 }
@@ -0,0 +1,70 @@
+package com.kota65535;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+
+/**
+ * Caps the estimated heap used by documents being processed at the same time.
+ */
+public class MemoryBudget {
+
+  /**
+   * Rough ratio of a parsed Jsoup document to the size of its source file.
+   */
+  private static final long DOM_SIZE_FACTOR = 10;
+
+  private final long capacity;
+
+  private long available;
+
+
+  public MemoryBudget(long capacity) {
+    this.capacity = capacity;
+    this.available = capacity;
+  }
+
+
+  /**
+   * Reserves the estimated memory for a document, waiting while the budget is exhausted. A
+   * document larger than the whole budget is processed alone.
+   *
+   * @param fileSize size of the source file in bytes
+   * @return reserved amount which must be passed to {@link #release(long)}
+   */
+  public long acquire(long fileSize) throws IOException {
+    return reserve(fileSize * DOM_SIZE_FACTOR);
+  }
+
+
+  /**
+   * Reserves memory for the raw content of a file, which is held without being parsed.
+   *
+   * @param fileSize size of the file in bytes
+   * @return reserved amount which must be passed to {@link #release(long)}
+   */
+  public long acquireRaw(long fileSize) throws IOException {
+    return reserve(fileSize);
+  }
+
+
+  private synchronized long reserve(long estimate) throws IOException {
+    long amount = Math.min(capacity, Math.max(1, estimate));
+    try {
+      while (available < amount) {
+        wait();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for memory budget");
+    }
+    available -= amount;
+    return amount;
+  }
+
+
+  public synchronized void release(long amount) {
+    available += amount;
+    notifyAll();
+  }
+}
@@ -0,0 +1,102 @@
+package com.kota65535;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.maven.plugin.logging.Log;
+
+
+/**
+ * Thread pools for page processing. Blocking file reads and writes run on the I/O executor, and
+ * CPU-bound parsing and link rewriting run on a fixed pool.
+ */
+public class MergeExecutors implements AutoCloseable {
+
+  private final ExecutorService ioExecutor;
+
+  private final ExecutorService cpuExecutor;
+
+  private final int threads;
+
+
+  /**
+   * @param threads number of CPU threads, or 0 to use the number of available processors
+   * @param virtualThreads run I/O on virtual threads if the running JDK supports them
+   */
+  public MergeExecutors(Log log, int threads, boolean virtualThreads) {
+    this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    this.cpuExecutor = Executors.newFixedThreadPool(this.threads, newThreadFactory("cpu"));
+
+    ExecutorService virtualThreadExecutor = virtualThreads ? newVirtualThreadExecutor() : null;
+    if (virtualThreadExecutor != null) {
+      this.ioExecutor = virtualThreadExecutor;
+      log.info(String.format("using %d CPU threads and virtual threads for I/O.", this.threads));
+    } else {
+      if (virtualThreads) {
+        log.warn("virtual threads are not supported by this JDK, using platform threads for I/O.");
+      }
+      // One reader and one writer for each CPU thread
+      this.ioExecutor = Executors.newFixedThreadPool(this.threads * 2, newThreadFactory("io"));
+      log.info(String.format("using %d CPU threads and %d I/O threads.", this.threads,
+          this.threads * 2));
+    }
+  }
+
+
+  /**
+   * @return number of CPU threads
+   */
+  public int threads() {
+    return threads;
+  }
+
+
+  public ExecutorService io() {
+    return ioExecutor;
+  }
+
+
+  public ExecutorService cpu() {
+    return cpuExecutor;
+  }
+
+
+  @Override
+  public void close() {
+    ioExecutor.shutdownNow();
+    cpuExecutor.shutdownNow();
+    try {
+      ioExecutor.awaitTermination(1, TimeUnit.MINUTES);
+      cpuExecutor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+
+  private static ThreadFactory newThreadFactory(String name) {
+    AtomicInteger count = new AtomicInteger();
+    return r -> {
+      Thread thread = new Thread(r, String.format("javadoc-merger-%s-%d", name, count.incrementAndGet()));
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+
+  /**
+   * Looks up {@code Executors.newVirtualThreadPerTaskExecutor()} reflectively since the plugin is
+   * compiled for Java 8.
+   */
+  private static ExecutorService newVirtualThreadExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package com.kota65535;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+
+/**
+ * Fingerprint of the inputs of a merge. Input directories are fingerprinted by the paths, sizes
+ * and modification times of their files, so no file content is read. Only JDK classes are used,
+ * so that a merge skipped as up to date loads none of the libraries of the plugin.
+ */
+public class MergeFingerprint {
+
+  private static final String FILE_NAME = ".javadoc-merger-fingerprint";
+
+  private final MessageDigest digest;
+
+
+  public MergeFingerprint() {
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform supports SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+
+  public MergeFingerprint putParameter(String name, Object value) {
+    putString(name);
+    putString(String.valueOf(value));
+    return this;
+  }
+
+
+  public MergeFingerprint putDirectory(String name, File dir) throws IOException {
+    putString(name);
+    if (!dir.isDirectory()) {
+      return this;
+    }
+
+    // Sort entries so that the fingerprint does not depend on the file system order
+    Map<String, BasicFileAttributes> entries = new TreeMap<>();
+    Path root = dir.toPath();
+    try (Stream<Path> paths = Files.walk(root)) {
+      Iterator<Path> it = paths.iterator();
+      while (it.hasNext()) {
+        Path path = it.next();
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        if (attrs.isRegularFile()) {
+          entries.put(root.relativize(path).toString().replace(File.separator, "/"), attrs);
+        }
+      }
+    }
+    entries.forEach((path, attrs) -> {
+      putString(path);
+      putLong(attrs.size());
+      putLong(attrs.lastModifiedTime().toMillis());
+    });
+    return this;
+  }
+
+
+  private void putString(String s) {
+    digest.update(s.getBytes(StandardCharsets.UTF_8));
+  }
+
+
+  private void putLong(long l) {
+    digest.update(ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(l)
+        .array());
+  }
+
+
+  /**
+   * @return true if outputDir was merged from the same inputs
+   */
+  public static boolean isUpToDate(File outputDir, String fingerprint) throws IOException {
+    File file = new File(outputDir, FILE_NAME);
+    return file.isFile()
+        && new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).equals(fingerprint);
+  }
+
+
+  public static void store(File outputDir, String fingerprint) throws IOException {
+    Files.write(new File(outputDir, FILE_NAME).toPath(),
+        fingerprint.getBytes(StandardCharsets.UTF_8));
+  }
+
+
+  /**
+   * Completes the fingerprint. No more values can be added after calling this.
+   */
+  public String hash() {
+    StringBuilder sb = new StringBuilder();
+    for (byte b : digest.digest()) {
+      sb.append(String.format("%02x", b));
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,109 @@
+package com.kota65535;
+
+import com.kota65535.resolver.ClassIndex;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * What a shard of a sharded merge tells the combine goal: which pages it rewrote, and a hash of
+ * the class dictionary it resolved links with. Every shard derives the same dictionary from the
+ * same inputs, so differing hashes mean the shards were merged from different inputs.
+ */
+public class MergePlan {
+
+  public static final String FILE_NAME = ".javadoc-merger-plan";
+
+  private final int shardIndex;
+
+  private final int shardCount;
+
+  private final String dictionaryHash;
+
+
+  public MergePlan(int shardIndex, int shardCount, ClassIndex dictionary) {
+    this(shardIndex, shardCount, dictionary.hash());
+  }
+
+
+  private MergePlan(int shardIndex, int shardCount, String dictionaryHash) {
+    this.shardIndex = shardIndex;
+    this.shardCount = shardCount;
+    this.dictionaryHash = dictionaryHash;
+  }
+
+
+  public int getShardIndex() {
+    return shardIndex;
+  }
+
+  public int getShardCount() {
+    return shardCount;
+  }
+
+
+  /**
+   * @param relativePath path of a page relative to outputDir, separated by '/'
+   * @return true if the page is rewritten by this shard
+   */
+  public boolean ownsPage(String relativePath) {
+    return shardOf(relativePath, shardCount) == shardIndex;
+  }
+
+
+  /**
+   * Assigns pages to shards by the hash of their package directory, so that the pages of a
+   * package are rewritten by the same shard on every node.
+   */
+  public static int shardOf(String relativePath, int shardCount) {
+    int i = relativePath.lastIndexOf('/');
+    String packagePath = i < 0 ? "" : relativePath.substring(0, i);
+    return Math.floorMod(packagePath.hashCode(), shardCount);
+  }
+
+
+  /**
+   * @return true if the plan was derived from the same inputs as the other
+   */
+  public boolean isCompatibleWith(MergePlan other) {
+    return shardCount == other.shardCount && dictionaryHash.equals(other.dictionaryHash);
+  }
+
+
+  public void write(File dir) throws IOException {
+    List<String> lines = Arrays.asList(
+        String.join("\t", "shard", String.valueOf(shardIndex), String.valueOf(shardCount)),
+        String.join("\t", "dictionary", dictionaryHash));
+    Files.write(new File(dir, FILE_NAME).toPath(), lines, StandardCharsets.UTF_8);
+  }
+
+
+  public static MergePlan read(File dir) throws IOException {
+    int shardIndex = -1;
+    int shardCount = -1;
+    String dictionaryHash = null;
+    for (String line : Files.readAllLines(new File(dir, FILE_NAME).toPath(),
+        StandardCharsets.UTF_8)) {
+      String[] tokens = line.split("\t");
+      switch (tokens[0]) {
+        case "shard":
+          shardIndex = Integer.parseInt(tokens[1]);
+          shardCount = Integer.parseInt(tokens[2]);
+          break;
+        case "dictionary":
+          dictionaryHash = tokens[1];
+          break;
+        default:
+          throw new IOException(String.format("Unknown plan entry '%s' in %s", line, dir));
+      }
+    }
+    if (shardIndex < 0 || dictionaryHash == null) {
+      throw new IOException(String.format("Incomplete plan in %s", dir));
+    }
+    return new MergePlan(shardIndex, shardCount, dictionaryHash);
+  }
+}
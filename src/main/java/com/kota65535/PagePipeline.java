@@ -0,0 +1,300 @@
+package com.kota65535;
+
+import com.kota65535.event.MergeEvents;
+import com.kota65535.event.MergeEvents.Span;
+import com.kota65535.resolver.LinkResolverBase;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import org.apache.maven.plugin.logging.Log;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+
+/**
+ * Rewrites pages with all link resolvers in a single pass. Pages flow through bounded queues
+ * between the stages discover -> read and scan -> parse and rewrite -> write, so each page is
+ * read, parsed and written only once however many resolvers apply to it. Parsing and rewriting
+ * share a stage because both are CPU-bound and the document would not be handed to another thread
+ * anyway. Pages in which the scan finds no linkable name are neither parsed nor written, unless
+ * pages are minified.
+ */
+public class PagePipeline {
+
+  private static final int QUEUE_CAPACITY = 64;
+
+  private final Log log;
+
+  private final MemoryBudget memoryBudget;
+
+  private final MergeExecutors executors;
+
+  private final List<LinkResolverBase> resolvers;
+
+  private final Predicate<Path> pageFilter;
+
+  private final PageSerializer serializer;
+
+  private final int workers;
+
+  private final List<Future<?>> futures = new CopyOnWriteArrayList<>();
+
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+  private final AtomicInteger rewrittenPages = new AtomicInteger();
+
+  private final AtomicInteger skippedPages = new AtomicInteger();
+
+  private Thread discoverer;
+
+
+  public PagePipeline(Log log, MemoryBudget memoryBudget, MergeExecutors executors,
+      List<LinkResolverBase> resolvers, Predicate<Path> pageFilter, PageSerializer serializer) {
+    this.log = log;
+    this.memoryBudget = memoryBudget;
+    this.executors = executors;
+    this.resolvers = resolvers;
+    this.pageFilter = pageFilter;
+    this.serializer = serializer;
+    this.workers = executors.threads();
+  }
+
+
+  public void run(Path root) throws IOException {
+    discoverer = Thread.currentThread();
+    long start = System.currentTimeMillis();
+
+    BlockingQueue<Page> readQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    BlockingQueue<Page> rewriteQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    BlockingQueue<Page> writeQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    startStage(executors.io(), readQueue, rewriteQueue, this::read);
+    startStage(executors.cpu(), rewriteQueue, writeQueue, this::rewrite);
+    startStage(executors.io(), writeQueue, null, this::write);
+
+    try {
+      discover(root, readQueue);
+      for (int i = 0; i < workers; ++i) {
+        readQueue.put(Page.END);
+      }
+    } catch (InterruptedIOException | InterruptedException e) {
+      // A stage failed and stopped the discovery
+      if (failure.get() == null) {
+        throw new InterruptedIOException("Interrupted while discovering pages");
+      }
+    }
+
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (CancellationException | ExecutionException e) {
+        // The cause is recorded in failure
+      } catch (InterruptedException e) {
+        if (failure.get() == null) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while waiting for pages");
+        }
+        break;
+      }
+    }
+
+    Throwable cause = failure.get();
+    if (cause != null) {
+      // Clear the interrupt used to stop the discovery
+      Thread.interrupted();
+    }
+    if (cause instanceof UncheckedIOException) {
+      throw ((UncheckedIOException) cause).getCause();
+    } else if (cause instanceof IOException) {
+      throw (IOException) cause;
+    } else if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    } else if (cause instanceof Error) {
+      throw (Error) cause;
+    } else if (cause != null) {
+      throw new IOException("Failed to process pages", cause);
+    }
+
+    log.info(String.format("rewrote %d pages, skipped %d pages without linkable names in %d ms.",
+        rewrittenPages.get(), skippedPages.get(), System.currentTimeMillis() - start));
+  }
+
+
+  private void discover(Path root, BlockingQueue<Page> readQueue) throws IOException {
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        if (!pageFilter.test(file) || !accepts(file)) {
+          return super.visitFile(file, attrs);
+        }
+
+        // Wait here while too many documents are in flight
+        Page page = new Page(file, memoryBudget.acquire(attrs.size()));
+        try {
+          readQueue.put(page);
+        } catch (InterruptedException e) {
+          memoryBudget.release(page.reserved);
+          throw new InterruptedIOException("Interrupted while discovering pages");
+        }
+        return super.visitFile(file, attrs);
+      }
+    });
+  }
+
+
+  /**
+   * @return true if any resolver rewrites the page, or it is to be minified
+   */
+  private boolean accepts(Path file) {
+    if (serializer.isMinify() && file.getFileName().toString().endsWith(".html")) {
+      return true;
+    }
+    return resolvers.stream().anyMatch(r -> r.accepts(file));
+  }
+
+
+  private boolean read(Page page) throws IOException {
+    try (Span span = MergeEvents.get().page("read", page.file)) {
+      page.content = Files.readAllBytes(page.file);
+      span.setSize(page.content.length);
+    }
+
+    // Scan the raw bytes to find the resolvers that may change the page
+    for (LinkResolverBase resolver : resolvers) {
+      if (resolver.accepts(page.file) && resolver.mayRewrite(page.content)) {
+        page.resolvers.add(resolver);
+      }
+    }
+    if (page.resolvers.isEmpty() && !serializer.isMinify()) {
+      log.debug(String.format("skipped %s", page.file));
+      skippedPages.incrementAndGet();
+      memoryBudget.release(page.reserved);
+      return false;
+    }
+    return true;
+  }
+
+
+  private boolean rewrite(Page page) throws IOException {
+    Document document;
+    try (Span span = MergeEvents.get().page("parse", page.file)) {
+      span.setSize(page.content.length);
+      document = Jsoup.parse(new ByteArrayInputStream(page.content),
+          StandardCharsets.UTF_8.name(), page.file.toFile().getAbsolutePath());
+    }
+    try (Span span = MergeEvents.get().page("rewrite", page.file)) {
+      int links = 0;
+      for (LinkResolverBase resolver : page.resolvers) {
+        links += resolver.rewrite(page.file, document);
+      }
+      page.content = serializer.serialize(document);
+      span.setSize(page.content.length);
+      span.setCount(links);
+    }
+    return true;
+  }
+
+
+  private boolean write(Page page) throws IOException {
+    try (Span span = MergeEvents.get().page("write", page.file)) {
+      Files.write(page.file, page.content);
+      span.setSize(page.content.length);
+    } finally {
+      memoryBudget.release(page.reserved);
+    }
+    rewrittenPages.incrementAndGet();
+    return true;
+  }
+
+
+  /**
+   * Starts workers that take pages from the input queue, process them and pass them to the output
+   * queue. The last worker to see the end of the input forwards it to the next stage. A worker that
+   * stops in any other way fails the whole pipeline.
+   */
+  private void startStage(ExecutorService executor, BlockingQueue<Page> input,
+      BlockingQueue<Page> output, Stage stage) {
+    AtomicInteger running = new AtomicInteger(workers);
+    for (int i = 0; i < workers; ++i) {
+      futures.add(executor.submit(() -> {
+        try {
+          Page page;
+          while ((page = input.take()) != Page.END) {
+            if (stage.process(page) && output != null) {
+              output.put(page);
+            }
+          }
+          if (running.decrementAndGet() == 0 && output != null) {
+            for (int j = 0; j < workers; ++j) {
+              output.put(Page.END);
+            }
+          }
+        } catch (InterruptedException e) {
+          // Usually cancelled because another stage failed, otherwise nobody forwards the end
+          fail(new InterruptedIOException("Interrupted while processing pages"));
+        } catch (Throwable e) {
+          // Errors too, such as OutOfMemoryError, or the other stages would wait for this worker
+          fail(e);
+        }
+        return null;
+      }));
+    }
+  }
+
+
+  private void fail(Throwable cause) {
+    if (failure.compareAndSet(null, cause)) {
+      // Stop the others before logging, which may fail again when out of memory
+      futures.forEach(f -> f.cancel(true));
+      discoverer.interrupt();
+      log.error(String.format("failed to process pages: %s", cause));
+    }
+  }
+
+
+  private interface Stage {
+
+    /**
+     * @return true to pass the page to the next stage
+     */
+    boolean process(Page page) throws IOException;
+  }
+
+
+  private static class Page {
+
+    private static final Page END = new Page(null, 0);
+
+    private final Path file;
+
+    private final long reserved;
+
+    private final List<LinkResolverBase> resolvers = new ArrayList<>();
+
+    private byte[] content;
+
+    private Page(Path file, long reserved) {
+      this.file = file;
+      this.reserved = reserved;
+    }
+  }
+}
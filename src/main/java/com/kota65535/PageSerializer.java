@@ -0,0 +1,92 @@
+package com.kota65535;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.jsoup.nodes.Comment;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Entities.EscapeMode;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+
+
+/**
+ * Serializes rewritten pages. In minified mode, comments are dropped, runs of whitespace outside
+ * preformatted elements are collapsed to a single space and the page is not pretty-printed.
+ */
+public class PageSerializer {
+
+  private static final Set<String> PREFORMATTED_TAGS = new HashSet<>(
+      Arrays.asList("pre", "textarea", "script", "style", "listing", "plaintext"));
+
+  // Only collapse ASCII whitespace, &nbsp; is meaningful
+  private static final Pattern WHITESPACE = Pattern.compile("[ \t\n\r\f]+");
+
+  private final boolean minify;
+
+
+  public PageSerializer(boolean minify) {
+    this.minify = minify;
+  }
+
+
+  public boolean isMinify() {
+    return minify;
+  }
+
+
+  public byte[] serialize(Document document) {
+    // Fixed settings rather than whatever the parser guessed, so equal trees give equal bytes
+    document.outputSettings()
+        .charset(StandardCharsets.UTF_8)
+        .escapeMode(EscapeMode.base)
+        .indentAmount(1)
+        .prettyPrint(true);
+    if (minify) {
+      minify(document);
+    }
+    return document.outerHtml().getBytes(StandardCharsets.UTF_8);
+  }
+
+
+  private void minify(Document document) {
+    List<Node> comments = new ArrayList<>();
+    new NodeTraversor(new NodeVisitor() {
+      @Override
+      public void head(Node node, int depth) {
+        if (node instanceof Comment) {
+          comments.add(node);
+        } else if (node instanceof TextNode && !isPreformatted(node)) {
+          TextNode textNode = (TextNode) node;
+          textNode.text(WHITESPACE.matcher(textNode.getWholeText()).replaceAll(" "));
+        }
+      }
+
+      @Override
+      public void tail(Node node, int depth) {
+      }
+    }).traverse(document);
+
+    // Removed after the traversal, which does not expect the tree to change
+    comments.forEach(Node::remove);
+    document.outputSettings().prettyPrint(false);
+  }
+
+
+  private static boolean isPreformatted(Node node) {
+    for (Node parent = node.parent(); parent != null; parent = parent.parent()) {
+      if (parent instanceof Element
+          && PREFORMATTED_TAGS.contains(((Element) parent).tagName().toLowerCase())) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,33 @@
+package com.kota65535;
+
+import com.google.common.io.Resources;
+import com.samskivert.mustache.Mustache;
+import com.samskivert.mustache.Template;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Templates of the pages created by {@link JavadocUpdater}. They are compiled on first use and
+ * shared by every execution in the same plugin class loader.
+ */
+public final class PageTemplates {
+
+  public static final Template PACKAGE_SUMMARY = compile("packageSummary.html.mustache");
+
+  public static final Template PACKAGE_FRAME = compile("packageFrame.html.mustache");
+
+
+  private PageTemplates() {
+  }
+
+
+  private static Template compile(String name) {
+    try {
+      return Mustache.compiler().compile(Resources.toString(
+          Resources.getResource(name), StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to initialize", e);
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package com.kota65535.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+
+@Name("com.kota65535.IndexUpdate")
+@Label("Index Update")
+@Category("Javadoc Merger")
+@Description("Adding a Groovy class to the package summary and package frame pages")
+class IndexUpdateEvent extends jdk.jfr.Event {
+
+  @Label("Class Name")
+  String className;
+}
@@ -0,0 +1,87 @@
+package com.kota65535.event;
+
+import java.nio.file.Path;
+
+
+/**
+ * {@link MergeEvents} backed by JFR. Only instantiated when jdk.jfr is available.
+ */
+class JfrMergeEvents extends MergeEvents {
+
+  @Override
+  public Span phase(String phase, String detail) {
+    PhaseEvent event = new PhaseEvent();
+    event.begin();
+    return new Span() {
+      @Override
+      public void setSize(long size) {
+      }
+
+      @Override
+      public void setCount(int count) {
+        event.count = count;
+      }
+
+      @Override
+      public void close() {
+        event.end();
+        if (event.shouldCommit()) {
+          event.phase = phase;
+          event.detail = detail;
+          event.commit();
+        }
+      }
+    };
+  }
+
+  @Override
+  public Span indexUpdate(String className) {
+    IndexUpdateEvent event = new IndexUpdateEvent();
+    event.begin();
+    return new Span() {
+      @Override
+      public void setSize(long size) {
+      }
+
+      @Override
+      public void setCount(int count) {
+      }
+
+      @Override
+      public void close() {
+        event.end();
+        if (event.shouldCommit()) {
+          event.className = className;
+          event.commit();
+        }
+      }
+    };
+  }
+
+  @Override
+  public Span page(String stage, Path file) {
+    PageEvent event = new PageEvent();
+    event.begin();
+    return new Span() {
+      @Override
+      public void setSize(long size) {
+        event.size = size;
+      }
+
+      @Override
+      public void setCount(int count) {
+        event.linkCount = count;
+      }
+
+      @Override
+      public void close() {
+        event.end();
+        if (event.shouldCommit()) {
+          event.stage = stage;
+          event.path = file.toString();
+          event.commit();
+        }
+      }
+    };
+  }
+}
@@ -0,0 +1,104 @@
+package com.kota65535.event;
+
+import java.nio.file.Path;
+
+
+/**
+ * Emits Java Flight Recorder events for the merge phases and for each page. When the running JDK
+ * has no JFR, the returned spans do nothing.
+ */
+public abstract class MergeEvents {
+
+  private static final MergeEvents INSTANCE = create();
+
+
+  public static MergeEvents get() {
+    return INSTANCE;
+  }
+
+
+  /**
+   * @param phase name of the phase, such as copy or prepare
+   * @param detail what the phase works on
+   */
+  public abstract Span phase(String phase, String detail);
+
+
+  /**
+   * @param className qualified name of the class added to the index pages
+   */
+  public abstract Span indexUpdate(String className);
+
+
+  /**
+   * @param stage name of the pipeline stage, such as read or parse
+   * @param file the page
+   */
+  public abstract Span page(String stage, Path file);
+
+
+  /**
+   * An event in progress. Closing the span commits the event if it is being recorded.
+   */
+  public interface Span extends AutoCloseable {
+
+    /**
+     * @param size number of bytes read or written
+     */
+    void setSize(long size);
+
+    /**
+     * @param count number of links created, or classes found
+     */
+    void setCount(int count);
+
+    @Override
+    void close();
+  }
+
+
+  private static MergeEvents create() {
+    try {
+      Class.forName("jdk.jfr.Event");
+      // Loaded reflectively so that nothing refers to JFR classes on a JDK without them
+      return (MergeEvents) Class.forName("com.kota65535.event.JfrMergeEvents")
+          .getDeclaredConstructor()
+          .newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      return new NoOpMergeEvents();
+    }
+  }
+
+
+  private static class NoOpMergeEvents extends MergeEvents {
+
+    private static final Span NO_OP_SPAN = new Span() {
+      @Override
+      public void setSize(long size) {
+      }
+
+      @Override
+      public void setCount(int count) {
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+
+    @Override
+    public Span phase(String phase, String detail) {
+      return NO_OP_SPAN;
+    }
+
+    @Override
+    public Span indexUpdate(String className) {
+      return NO_OP_SPAN;
+    }
+
+    @Override
+    public Span page(String stage, Path file) {
+      return NO_OP_SPAN;
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package com.kota65535.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+
+@Name("com.kota65535.Page")
+@Label("Page")
+@Category("Javadoc Merger")
+@Description("A pipeline stage processing a page")
+class PageEvent extends jdk.jfr.Event {
+
+  @Label("Stage")
+  String stage;
+
+  @Label("Path")
+  String path;
+
+  @Label("Size")
+  @DataAmount
+  long size;
+
+  @Label("Link Count")
+  int linkCount;
+}
@@ -0,0 +1,24 @@
+package com.kota65535.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+
+@Name("com.kota65535.MergePhase")
+@Label("Merge Phase")
+@Category("Javadoc Merger")
+@Description("A phase of the merge, such as copying documents or preparing a link dictionary")
+class PhaseEvent extends jdk.jfr.Event {
+
+  @Label("Phase")
+  String phase;
+
+  @Label("Detail")
+  String detail;
+
+  @Label("Count")
+  @Description("Number of files copied or classes found")
+  int count;
+}
@@ -0,0 +1,156 @@
+package com.kota65535.resolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+
+/**
+ * Qualified names of the classes of merged docs and the links to their pages. The merge writes it
+ * next to package-list, so that other modules and tools can resolve the classes, Groovy ones
+ * included, without parsing HTML. Each line holds a qualified name and the link relative to the
+ * docs root separated by a tab, in sorted order.
+ */
+public class ClassIndex {
+
+  public static final String FILE_NAME = "class-index.tsv";
+
+  private static final String PACKAGE_LIST = "package-list";
+
+  private static final String ELEMENT_LIST = "element-list";
+
+  private static final String MODULE_PREFIX = "module:";
+
+  private final SortedMap<String, String> classes;
+
+
+  /**
+   * @param classes qualified class names to their links relative to the docs root
+   */
+  public ClassIndex(Map<String, String> classes) {
+    this.classes = new TreeMap<>(classes);
+  }
+
+
+  public SortedMap<String, String> getClasses() {
+    return Collections.unmodifiableSortedMap(classes);
+  }
+
+
+  /**
+   * @return names of the packages, taken from the directories of the class pages
+   */
+  public SortedSet<String> getPackages() {
+    SortedSet<String> packages = new TreeSet<>();
+    for (String link : classes.values()) {
+      int i = link.lastIndexOf('/');
+      if (i > 0) {
+        packages.add(link.substring(0, i).replace('/', '.'));
+      }
+    }
+    return packages;
+  }
+
+
+  public static boolean exists(File dir) {
+    return new File(dir, FILE_NAME).isFile();
+  }
+
+
+  public static ClassIndex read(File dir) throws IOException {
+    Map<String, String> classes = new TreeMap<>();
+    for (String line : Files.readAllLines(new File(dir, FILE_NAME).toPath(),
+        StandardCharsets.UTF_8)) {
+      String[] tokens = line.split("\t");
+      if (tokens.length != 2) {
+        throw new IOException(String.format("Invalid class index entry '%s' in %s", line, dir));
+      }
+      classes.put(tokens[0], tokens[1]);
+    }
+    return new ClassIndex(classes);
+  }
+
+
+  public void write(File dir) throws IOException {
+    Files.write(new File(dir, FILE_NAME).toPath(), toLines(), StandardCharsets.UTF_8);
+  }
+
+
+  /**
+   * @return SHA-256 of the index in hex, equal for equal indexes
+   */
+  public String hash() {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform supports SHA-256
+      throw new IllegalStateException(e);
+    }
+    for (String line : toLines()) {
+      digest.update((line + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+    StringBuilder sb = new StringBuilder();
+    for (byte b : digest.digest()) {
+      sb.append(String.format("%02x", b));
+    }
+    return sb.toString();
+  }
+
+
+  private List<String> toLines() {
+    List<String> lines = new ArrayList<>();
+    classes.forEach((name, link) -> lines.add(name + "\t" + link));
+    return lines;
+  }
+
+
+  /**
+   * Adds the packages of the classes to package-list and element-list of the docs, so that
+   * Javadoc of other modules can link to them with -link. An element-list grouped by module is
+   * left as it is, as the module of a new package is unknown.
+   *
+   * @return packages missing in the element-list left as it is
+   */
+  public SortedSet<String> writePackageLists(File dir) throws IOException {
+    SortedSet<String> unlisted = new TreeSet<>();
+    for (String fileName : new String[]{PACKAGE_LIST, ELEMENT_LIST}) {
+      Path file = new File(dir, fileName).toPath();
+      List<String> lines = Files.exists(file)
+          ? Files.readAllLines(file, StandardCharsets.UTF_8)
+          : new ArrayList<>();
+      if (fileName.equals(ELEMENT_LIST) && lines.isEmpty()) {
+        // Javadoc prior to 11 writes only package-list
+        continue;
+      }
+      if (lines.stream().anyMatch(l -> l.startsWith(MODULE_PREFIX))) {
+        Set<String> listed = new HashSet<>(lines);
+        getPackages().stream()
+            .filter(p -> !listed.contains(p))
+            .forEach(unlisted::add);
+        continue;
+      }
+
+      SortedSet<String> packages = new TreeSet<>(getPackages());
+      lines.stream()
+          .filter(l -> !l.isEmpty())
+          .forEach(packages::add);
+      Files.write(file, new ArrayList<>(packages), StandardCharsets.UTF_8);
+    }
+    return unlisted;
+  }
+}
@@ -0,0 +1,138 @@
+package com.kota65535.resolver;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+
+/**
+ * Aho-Corasick automaton over the UTF-8 bytes of class names. It tells whether a page contains
+ * any of the names without decoding or parsing it. Class names consist of characters that
+ * Javadoc never escapes, so a page whose text contains a name also contains its bytes.
+ */
+public class ClassNameMatcher {
+
+  private static final int ROOT = 0;
+
+  // Open addressing table of transitions, keyed by (state << 8 | byte)
+  private long[] keys;
+  private int[] targets;
+  private int mask;
+
+  private int[] failures;
+  private boolean[] terminals;
+
+
+  public ClassNameMatcher(Collection<String> names) {
+    // Build the trie, remembering the parent and the incoming byte of each state
+    int capacity = 1024;
+    int[] parents = new int[capacity];
+    byte[] labels = new byte[capacity];
+    int[] depths = new int[capacity];
+    boolean[] ends = new boolean[capacity];
+    int size = 1;
+
+    List<byte[]> encodedNames = names.stream()
+        .filter(name -> !name.isEmpty())
+        .map(name -> name.getBytes(StandardCharsets.UTF_8))
+        .collect(Collectors.toList());
+    initTable(encodedNames.stream().mapToInt(name -> name.length).sum());
+    for (byte[] name : encodedNames) {
+      int state = ROOT;
+      for (byte b : name) {
+        int next = get(state, b);
+        if (next < 0) {
+          if (size == capacity) {
+            capacity *= 2;
+            parents = Arrays.copyOf(parents, capacity);
+            labels = Arrays.copyOf(labels, capacity);
+            depths = Arrays.copyOf(depths, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+          }
+          next = size++;
+          parents[next] = state;
+          labels[next] = b;
+          depths[next] = depths[state] + 1;
+          put(state, b, next);
+        }
+        state = next;
+      }
+      ends[state] = true;
+    }
+
+    // Compute failure links in breadth-first order, so that a state's parent is already done
+    Integer[] order = new Integer[size];
+    for (int i = 0; i < size; ++i) {
+      order[i] = i;
+    }
+    int[] levels = depths;
+    Arrays.sort(order, (a, b) -> Integer.compare(levels[a], levels[b]));
+
+    failures = new int[size];
+    terminals = Arrays.copyOf(ends, size);
+    for (int state : order) {
+      int parent = parents[state];
+      if (state == ROOT || parent == ROOT) {
+        continue;
+      }
+      int failure = failures[parent];
+      int next;
+      while ((next = get(failure, labels[state])) < 0 && failure != ROOT) {
+        failure = failures[failure];
+      }
+      failures[state] = next >= 0 ? next : ROOT;
+      terminals[state] |= terminals[failures[state]];
+    }
+  }
+
+
+  /**
+   * @return true if the content contains at least one of the names
+   */
+  public boolean matchesAny(byte[] content) {
+    int state = ROOT;
+    for (byte b : content) {
+      int next;
+      while ((next = get(state, b)) < 0 && state != ROOT) {
+        state = failures[state];
+      }
+      state = next >= 0 ? next : ROOT;
+      if (terminals[state]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+  private void initTable(int expected) {
+    int capacity = Integer.highestOneBit(Math.max(expected, 16) * 2 - 1) * 2;
+    keys = new long[capacity];
+    targets = new int[capacity];
+    Arrays.fill(keys, -1);
+    mask = capacity - 1;
+  }
+
+  private int slot(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    int i = (int) (h >>> 32) & mask;
+    while (keys[i] != -1 && keys[i] != key) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  private int get(int state, byte b) {
+    int i = slot(((long) state << 8) | (b & 0xff));
+    return keys[i] == -1 ? -1 : targets[i];
+  }
+
+  private void put(int state, byte b, int target) {
+    long key = ((long) state << 8) | (b & 0xff);
+    int i = slot(key);
+    keys[i] = key;
+    targets[i] = target;
+  }
+}
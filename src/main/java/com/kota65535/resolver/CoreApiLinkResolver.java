@@ -4,7 +4,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
@@ -13,25 +13,20 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.maven.plugin.logging.Log;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.nodes.Node;
 import org.jsoup.nodes.TextNode;
 import org.jsoup.parser.Tag;
 import org.jsoup.select.Elements;
-import org.reflections.Reflections;
-import org.reflections.scanners.SubTypesScanner;
 
 
 /**
@@ -46,8 +41,9 @@ public class CoreApiLinkResolver extends LinkResolverBase {
   private final String javaBaseUrl;
   private final String groovyBaseUrl;
 
-  private Map<String, String> fullClassNameToLink;
-  private Set<String> fullClassNames;
+  private StringTable javaClassNames;
+  private StringTable groovyClassNames;
+  private StringTable fullClassNames;
 
   public CoreApiLinkResolver(Log log, File outputDir, String javaVersion, String groovyVersion) {
     super(log, outputDir);
@@ -60,78 +56,100 @@ public class CoreApiLinkResolver extends LinkResolverBase {
   }
 
 
-  public void update() throws IOException {
+  @Override
+  public boolean accepts(Path file) {
+    return file.getFileName().toString().endsWith(".html");
+  }
 
-    prepare();
 
-    // Update javadoc links
-    Files.walkFileTree(outputDir.toPath(), new SimpleFileVisitor<Path>() {
-      @Override
-      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+  @Override
+  public int rewrite(Path file, Document document) {
+    log.info(String.format("updating core API link %s", file.toString()));
 
-        log.info(String.format("updating core API link %s", file.toString()));
+    int links = replaceTextNodes(document.select("body dd"));
+    links += replaceTextNodes(document.select("body pre"));
+    links += replaceTextNodes(document.select("body code"));
+    links += replaceTextNodes(document.select("body code strong"));
+    links += replaceTextNodes(document.select("body h4"));
 
-        Document document = Jsoup.parse(file.toFile(), StandardCharsets.UTF_8.name());
-        replaceTextNodes(document.select("body dd"));
-        replaceTextNodes(document.select("body pre"));
-        replaceTextNodes(document.select("body code"));
-        replaceTextNodes(document.select("body code strong"));
-        replaceTextNodes(document.select("body h4"));
-        Files.write(file, document.outerHtml().getBytes(StandardCharsets.UTF_8));
+    log.info(String.format("updated core API link %s", file.toString()));
+    return links;
+  }
 
-        log.info(String.format("updated core API link %s", file.toString()));
 
-        return super.visitFile(file, attrs);
-      }
-    });
-  }
+  /**
+   * Builds the dictionary of Java core API classes only.
+   */
+  @Override
+  public int prepare() throws IOException {
+    javaClassNames = new StringTable(getJavaCoreLibraryClassNames("java"));
+
+    log.info(String.format("detected %d Java core API classes.", javaClassNames.size()));
 
+    groovyClassNames = new StringTable(Collections.emptySet());
+    indexClassNames();
+    return javaClassNames.size();
+  }
 
-  private void prepare() throws IOException {
-    Set<Class> javaClasses = getJavaCoreLibraryClasses("java");
-    Map<String, String> javaClassNameToLink = javaClasses.stream()
-        .collect(Collectors.toMap(
-            Class::getName, c -> javaBaseUrl + c.getName().replace(".", "/") + ".html"));
 
-    log.info(String.format("detected %d Java core API classes.", javaClasses.size()));
+  /**
+   * Adds Groovy core API classes to the dictionary built by {@link #prepare()}.
+   *
+   * @return number of Groovy classes found
+   */
+  public int prepareGroovyApi() {
+    groovyClassNames = new StringTable(GroovyApiClassNames.scan());
+    log.info(String.format("detected %d Groovy core API classes.", groovyClassNames.size()));
 
-    Set<Class<?>> groovyClasses = new Reflections(
-        "groovy", new SubTypesScanner(false)).getSubTypesOf(Object.class);
-    Map<String, String> groovyClassNameToLink = groovyClasses.stream()
-        .collect(Collectors.toMap(
-            Class::getName, c -> groovyBaseUrl + c.getName().replace(".", "/") + ".html"));
+    indexClassNames();
+    return groovyClassNames.size();
+  }
 
-    log.info(String.format("detected %d Groovy core API classes.", groovyClasses.size()));
 
-    fullClassNameToLink = Stream.of(javaClassNameToLink, groovyClassNameToLink)
-        .map(Map::entrySet)
-        .flatMap(Collection::stream)
-        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+  private void indexClassNames() {
+    fullClassNames = new StringTable(
+        Stream.concat(javaClassNames.stream(), groovyClassNames.stream())
+            .collect(Collectors.toList()));
+    matcher = new ClassNameMatcher(fullClassNames);
+  }
 
-    fullClassNames = fullClassNameToLink.keySet();
+  private String getLink(String fullClassName) {
+    String baseUrl = groovyClassNames.contains(fullClassName) ? groovyBaseUrl : javaBaseUrl;
+    return baseUrl + fullClassName.replace(".", "/") + ".html";
   }
 
-  private void replaceTextNodes(Elements elements) {
+  private int replaceTextNodes(Elements elements) {
+    int links = 0;
     if (elements != null) {
-      elements.forEach(e -> replaceTextNode(e));
+      for (Element e : elements) {
+        links += replaceTextNode(e);
+      }
     }
+    return links;
   }
 
-  private void replaceTextNode(Element element) {
+  private int replaceTextNode(Element element) {
     // Clone the element without its children to prevent ConcurrentModificationException
     Element newElement = element.clone().empty();
+    int links = 0;
 
     for (int i = 0; i < element.childNodeSize(); ++i) {
       // If child node is text, convert class name texts to linked texts.
       if (element.childNode(i) instanceof TextNode) {
         TextNode tn = (TextNode) element.childNode(i);
-        splitText(tn.getWholeText()).forEach(newElement::appendChild);
+        for (Node node : splitText(tn.getWholeText())) {
+          newElement.appendChild(node);
+          if (node instanceof Element) {
+            ++links;
+          }
+        }
       } else {
         newElement.appendChild(element.childNode(i).clone());
       }
     }
     // Replace original element with the cloned element
     element.replaceWith(newElement);
+    return links;
   }
 
   private List<Node> splitText(String str) {
@@ -153,9 +171,10 @@ public class CoreApiLinkResolver extends LinkResolverBase {
     List<Node> nodes = new ArrayList<>();
     tokens.forEach(s -> {
       if (fullClassNames.contains(s)) {
-        log.info(String.format("replace text %s to link %s", s, fullClassNameToLink.get(s)));
+        String link = getLink(s);
+        log.info(String.format("replace text %s to link %s", s, link));
         nodes.add(new Element(Tag.valueOf("a"), "")
-            .attr("href", fullClassNameToLink.get(s))
+            .attr("href", link)
             .text(toSimpleClassName(s)));
       } else {
         nodes.add(new TextNode(s, ""));
@@ -166,36 +185,45 @@ public class CoreApiLinkResolver extends LinkResolverBase {
   }
 
 
-  private Set<Class> getJavaCoreLibraryClasses(String packageName) throws IOException {
-    ClassLoader c = Object.class.getClassLoader();
+  private Set<String> getJavaCoreLibraryClassNames(String packageName) throws IOException {
     URI uri;
     try {
       uri = ClassLoader.getSystemClassLoader().getResource("java/lang/Object.class").toURI();
     } catch (URISyntaxException e) {
       throw new RuntimeException(e);
     }
-    Set<Class> classes = new HashSet<>();
-    try (FileSystem zipfs = FileSystems.newFileSystem(uri, Collections.emptyMap())) {
-      for (Path path : zipfs.getRootDirectories()) {
-        Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
-          @Override
-          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
-              throws IOException {
-            String className = file.toString().substring(1)
-                .replace("/", ".")
-                .replace(".class", "");
-            if (className.startsWith(packageName)) {
-              try {
-                classes.add(Class.forName(className));
-              } catch (ClassNotFoundException e) {
-                log.warn(String.format("class '%s' not found.", className));
-              }
-            }
-            return super.visitFile(file, attrs);
-          }
-        });
+    Set<String> classNames = new HashSet<>();
+    if (uri.getScheme().equals("jrt")) {
+      // Java 9 or later, class files are located at /modules/<module>/<package path>
+      FileSystem jrtfs = FileSystems.getFileSystem(URI.create("jrt:/"));
+      try (DirectoryStream<Path> modules = Files.newDirectoryStream(jrtfs.getPath("/modules"))) {
+        for (Path module : modules) {
+          collectClassNames(module, packageName, classNames);
+        }
+      }
+    } else {
+      try (FileSystem zipfs = FileSystems.newFileSystem(uri, Collections.emptyMap())) {
+        for (Path path : zipfs.getRootDirectories()) {
+          collectClassNames(path, packageName, classNames);
+        }
       }
     }
-    return classes;
+    return classNames;
+  }
+
+  private void collectClassNames(Path root, String packageName, Set<String> classNames)
+      throws IOException {
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        String className = root.relativize(file).toString()
+            .replace("/", ".")
+            .replace(".class", "");
+        if (className.startsWith(packageName)) {
+          classNames.add(className);
+        }
+        return super.visitFile(file, attrs);
+      }
+    });
   }
 }
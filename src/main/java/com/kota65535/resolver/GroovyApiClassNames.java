@@ -0,0 +1,22 @@
+package com.kota65535.resolver;
+
+import java.util.Set;
+import org.reflections.Reflections;
+import org.reflections.scanners.SubTypesScanner;
+
+
+/**
+ * Scans the Groovy core API classes on the class path of the plugin. Kept apart from
+ * {@link CoreApiLinkResolver} so that Reflections is loaded only when Groovy API links are needed.
+ */
+class GroovyApiClassNames {
+
+  private GroovyApiClassNames() {
+  }
+
+
+  static Set<String> scan() {
+    // Only the names are needed, so the scanned classes are never loaded
+    return new Reflections("groovy", new SubTypesScanner(false)).getAllTypes();
+  }
+}
@@ -2,10 +2,12 @@ package com.kota65535.resolver;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import org.apache.maven.plugin.logging.Log;
+import org.jsoup.nodes.Document;
 
 
 /**
@@ -17,13 +19,43 @@ public abstract class LinkResolverBase {
 
   protected File outputDir;
 
+  protected ClassNameMatcher matcher;
+
   public LinkResolverBase(Log log, File outputDir) {
     this.log = log;
     this.outputDir = outputDir;
   }
 
 
-  abstract public void update() throws IOException;
+  /**
+   * Builds the dictionary of linkable class names. May run while the documents are still being
+   * copied, so it must not read outputDir.
+   *
+   * @return number of classes found
+   */
+  abstract public int prepare() throws IOException;
+
+
+  /**
+   * @return true if the page should be rewritten
+   */
+  abstract public boolean accepts(Path file);
+
+
+  /**
+   * Scans the raw page for names in the dictionary before it is parsed.
+   *
+   * @return false if rewriting the page cannot change it
+   */
+  public boolean mayRewrite(byte[] content) {
+    return matcher == null || matcher.matchesAny(content);
+  }
+
+
+  /**
+   * @return number of links created
+   */
+  abstract public int rewrite(Path file, Document document);
 
 
   protected List<Integer> getIndicesOf(String target, Set<String> candidates) {
@@ -0,0 +1,292 @@
+package com.kota65535.resolver;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+
+/**
+ * Anchors of the methods and fields of class pages. Members are keyed by their name and the simple
+ * names of their parameter types, like {@code bar(String)}, which is how docs refer to them in
+ * text. Pages are kept as a sorted table, each with the range of its members in a sorted array of
+ * keys and a parallel array of anchors.
+ */
+public class MemberIndex {
+
+  public static final MemberIndex EMPTY = new MemberIndex(Collections.emptyMap());
+
+  // Javadoc 8 and Groovydoc mark members with <a name>, Javadoc 11 with <a id> or <section id>
+  private static final byte[][] ANCHOR_TAGS = {ascii("<a"), ascii("<section")};
+
+  private static final byte[][] ANCHOR_ATTRIBUTES = {ascii("name=\""), ascii("id=\"")};
+
+  private static final String IDENTIFIER =
+      "[\\p{javaJavaIdentifierStart}][\\p{javaJavaIdentifierPart}]*";
+
+  // bar(java.lang.String) in Javadoc 11 and Groovydoc
+  private static final Pattern METHOD = Pattern.compile("(" + IDENTIFIER + ")\\((.*)\\)");
+
+  // bar-java.lang.String- in Javadoc 8
+  private static final Pattern JAVADOC8_METHOD = Pattern.compile("(" + IDENTIFIER + ")-(.*)-");
+
+  private static final Pattern FIELD = Pattern.compile(IDENTIFIER);
+
+  // Anchors of the navigation bars and sections of Groovydoc
+  private static final Pattern NAVIGATION = Pattern.compile(
+      "(navbar|skip).*|.*_(summary|detail|firstrow)");
+
+  private final String[] pages;
+
+  // The members of pages[i] are from memberStarts[i] to memberStarts[i + 1]
+  private final int[] memberStarts;
+
+  private final String[] keys;
+
+  private final String[] anchors;
+
+
+  private MemberIndex(Map<String, SortedMap<String, String>> members) {
+    pages = members.keySet().stream().sorted().toArray(String[]::new);
+    memberStarts = new int[pages.length + 1];
+    for (int i = 0; i < pages.length; ++i) {
+      memberStarts[i + 1] = memberStarts[i] + members.get(pages[i]).size();
+    }
+    keys = new String[memberStarts[pages.length]];
+    anchors = new String[keys.length];
+    for (int i = 0; i < pages.length; ++i) {
+      int j = memberStarts[i];
+      for (Map.Entry<String, String> e : members.get(pages[i]).entrySet()) {
+        keys[j] = e.getKey();
+        anchors[j] = e.getValue();
+        ++j;
+      }
+    }
+  }
+
+
+  /**
+   * @param page link of the class page relative to outputDir
+   * @param member key of the member made by {@link #toMemberKey(String, String)}
+   * @return the anchor of the member in the page, or null if the page has no such member
+   */
+  public String getAnchor(String page, String member) {
+    int i = Arrays.binarySearch(pages, page);
+    if (i < 0) {
+      return null;
+    }
+    int j = Arrays.binarySearch(keys, memberStarts[i], memberStarts[i + 1], member);
+    return j >= 0 ? anchors[j] : null;
+  }
+
+
+  public int size() {
+    return keys.length;
+  }
+
+
+  /**
+   * @param parameters parameters as written in docs separated by commas, or null for a field
+   */
+  public static String toMemberKey(String name, String parameters) {
+    return toMemberKey(name, parameters, ',');
+  }
+
+
+  private static String toMemberKey(String name, String parameters, char separator) {
+    if (parameters == null) {
+      return name;
+    }
+    return splitParameters(parameters, separator).stream()
+        .map(MemberIndex::toSimpleTypeName)
+        .collect(Collectors.joining(",", name + "(", ")"));
+  }
+
+
+  /**
+   * Splits parameters at the separators outside type arguments.
+   */
+  private static List<String> splitParameters(String parameters, char separator) {
+    List<String> types = new ArrayList<>();
+    if (parameters.trim().isEmpty()) {
+      return types;
+    }
+    int depth = 0;
+    int start = 0;
+    for (int i = 0; i < parameters.length(); ++i) {
+      char c = parameters.charAt(i);
+      if (c == '<') {
+        ++depth;
+      } else if (c == '>') {
+        --depth;
+      } else if (c == separator && depth == 0) {
+        types.add(parameters.substring(start, i));
+        start = i + 1;
+      }
+    }
+    types.add(parameters.substring(start));
+    return types;
+  }
+
+
+  /**
+   * Reduces a parameter like {@code java.util.List<String>... list} to {@code List[]}.
+   */
+  static String toSimpleTypeName(String parameter) {
+    String name = parameter.trim();
+
+    // Drop the type arguments and the parameter name
+    int typeArguments = name.indexOf('<');
+    if (typeArguments >= 0) {
+      name = name.substring(0, typeArguments) + name.substring(name.lastIndexOf('>') + 1);
+    }
+    int space = name.indexOf(' ');
+    if (space >= 0) {
+      name = name.substring(0, space);
+    }
+
+    // Javadoc 8 writes arrays as :A
+    name = name.replace(":A", "[]").replace("...", "[]");
+    int dimensions = name.indexOf('[');
+    String suffix = dimensions >= 0 ? name.substring(dimensions) : "";
+    String base = dimensions >= 0 ? name.substring(0, dimensions) : name;
+    return base.substring(base.lastIndexOf('.') + 1) + suffix;
+  }
+
+
+  private static byte[] ascii(String s) {
+    return s.getBytes(StandardCharsets.US_ASCII);
+  }
+
+
+  private static boolean startsWith(byte[] content, int start, byte[] prefix) {
+    if (start + prefix.length > content.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; ++i) {
+      if (content[start + i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+
+  private static int indexOf(byte[] content, byte b, int from) {
+    for (int i = from; i < content.length; ++i) {
+      if (content[i] == b) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f';
+  }
+
+
+  /**
+   * Collects the member anchors of class pages. Pages may be added from multiple threads.
+   */
+  public static class Builder {
+
+    private final Map<String, SortedMap<String, String>> members = new ConcurrentHashMap<>();
+
+
+    /**
+     * Scans the raw content for anchors without decoding it, as the markup around them is ASCII.
+     *
+     * @param page link of the class page relative to outputDir
+     * @param content raw content of the page
+     */
+    public void add(String page, byte[] content) {
+      SortedMap<String, String> pageMembers = new TreeMap<>();
+      for (int i = 0; i < content.length; ++i) {
+        if (content[i] != '<' || !isAnchorTag(content, i)) {
+          continue;
+        }
+        int tagEnd = indexOf(content, (byte) '>', i);
+        if (tagEnd < 0) {
+          break;
+        }
+        String anchor = getAnchorAttribute(content, i, tagEnd);
+        String key = anchor == null ? null : toKey(anchor);
+        if (key != null) {
+          // The first of the overloads that look the same with simple type names wins
+          pageMembers.putIfAbsent(key, anchor);
+        }
+        i = tagEnd;
+      }
+      if (!pageMembers.isEmpty()) {
+        members.put(page, pageMembers);
+      }
+    }
+
+
+    public MemberIndex build() {
+      return new MemberIndex(members);
+    }
+
+
+    private static boolean isAnchorTag(byte[] content, int start) {
+      for (byte[] tag : ANCHOR_TAGS) {
+        int end = start + tag.length;
+        if (startsWith(content, start, tag) && end < content.length
+            && isWhitespace(content[end])) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+
+    /**
+     * @return the value of the name or id attribute of the tag, or null if it has neither
+     */
+    private static String getAnchorAttribute(byte[] content, int start, int end) {
+      for (int i = start + 1; i < end; ++i) {
+        if (!isWhitespace(content[i - 1])) {
+          continue;
+        }
+        for (byte[] attribute : ANCHOR_ATTRIBUTES) {
+          if (startsWith(content, i, attribute)) {
+            int valueStart = i + attribute.length;
+            int valueEnd = indexOf(content, (byte) '"', valueStart);
+            if (valueEnd < 0 || valueEnd == valueStart) {
+              return null;
+            }
+            return new String(content, valueStart, valueEnd - valueStart,
+                StandardCharsets.UTF_8);
+          }
+        }
+      }
+      return null;
+    }
+
+
+    private static String toKey(String anchor) {
+      Matcher method = METHOD.matcher(anchor);
+      if (method.matches()) {
+        return toMemberKey(method.group(1), method.group(2), ',');
+      }
+      Matcher javadoc8Method = JAVADOC8_METHOD.matcher(anchor);
+      if (javadoc8Method.matches()) {
+        return toMemberKey(javadoc8Method.group(1), javadoc8Method.group(2), '-');
+      }
+      if (FIELD.matcher(anchor).matches() && !NAVIGATION.matcher(anchor).matches()) {
+        return anchor;
+      }
+      return null;
+    }
+  }
+}
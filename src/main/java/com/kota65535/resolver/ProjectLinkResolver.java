@@ -3,18 +3,20 @@ package com.kota65535.resolver;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.apache.maven.plugin.logging.Log;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
@@ -30,58 +32,107 @@ import org.jsoup.select.Elements;
  */
 public class ProjectLinkResolver extends LinkResolverBase {
 
+  private static final String ALL_CLASSES_NOFRAME = "allclasses-noframe.html";
+
+  // Foo.bar(String), com.example.Foo#bar() or Foo.BAZ
+  private static final Pattern MEMBER_REFERENCE = Pattern.compile(
+      "((?:[\\w$]+\\.)*[\\w$]+)[.#]([\\w$]+)(?:\\(([^()]*)\\))?");
+
   private Map<String, String> fullClassNameToLink = new HashMap<>();
   private Map<String, String> classNameToLink = new HashMap<>();
   private Set<String> fullClassNames;
   private Set<String> classNames;
+  private MemberIndex memberIndex = MemberIndex.EMPTY;
 
-  public ProjectLinkResolver(Log log, File outputDir) {
+  private final File javadocDir;
+
+  /**
+   * @param javadocDir the input Javadoc
+   */
+  public ProjectLinkResolver(Log log, File outputDir, File javadocDir) {
     super(log, outputDir);
+    this.javadocDir = javadocDir;
   }
 
 
-  public void update() throws IOException {
+  @Override
+  public boolean accepts(Path file) {
+    // Update only class javadoc
+    String fileName = file.getFileName().toString();
+    return Character.isUpperCase(fileName.charAt(0)) && fileName.endsWith(".html");
+  }
 
-    prepare();
 
-    // Update javadoc links
-    Files.walkFileTree(outputDir.toPath(), new SimpleFileVisitor<Path>() {
-      @Override
-      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-        // Update only class javadoc
-        if (!Character.isUpperCase(file.getFileName().toString().charAt(0))) {
-          return super.visitFile(file, attrs);
-        }
+  @Override
+  public int rewrite(Path file, Document document) {
+    log.info(String.format("updating package link %s", file.toString()));
 
-        log.info(String.format("updating package link %s", file.toString()));
+    String prefix = file.getParent().relativize(outputDir.toPath()).toString()
+        .replace(File.separator, "/") + "/";
+    int links = replaceTextNodes(document.select("body dd"), prefix);
+    links += replaceTextNodes(document.select("body pre"), prefix);
+    links += replaceTextNodes(document.select("body code"), prefix);
+    links += replaceTextNodes(document.select("body code strong"), prefix);
+    links += replaceTextNodes(document.select("body h4"), prefix);
 
-        Document document = Jsoup.parse(file.toFile(), StandardCharsets.UTF_8.name());
-        String prefix = file.getParent().relativize(outputDir.toPath()).toString()
-            .replace(File.separator, "/") + "/";
-        replaceTextNodes(document.select("body dd"), prefix);
-        replaceTextNodes(document.select("body pre"), prefix);
-        replaceTextNodes(document.select("body code"), prefix);
-        replaceTextNodes(document.select("body code strong"), prefix);
-        replaceTextNodes(document.select("body h4"), prefix);
-        Files.write(file, document.outerHtml().getBytes(StandardCharsets.UTF_8));
+    log.info(String.format("updated package link %s", file.toString()));
+    return links;
+  }
 
-        log.info(String.format("updated package link %s", file.toString()));
 
-        return super.visitFile(file, attrs);
-      }
-    });
+  @Override
+  public int prepare() throws IOException {
+    // Docs merged before come with their class index
+    if (ClassIndex.exists(javadocDir)) {
+      fullClassNameToLink = new HashMap<>(ClassIndex.read(javadocDir).getClasses());
+      indexSimpleClassNames();
+      return fullClassNameToLink.size();
+    }
+
+    Document document = Jsoup.parse(new File(javadocDir, ALL_CLASSES_NOFRAME),
+        StandardCharsets.UTF_8.name());
+    fullClassNameToLink = new HashMap<>();
+    for (Element a : document.select("li a")) {
+      // Take the package from the link, the title differs between classes and interfaces
+      String link = a.attr("href");
+      int i = link.lastIndexOf('/');
+      String packagePrefix = i < 0 ? "" : link.substring(0, i).replace("/", ".") + ".";
+      fullClassNameToLink.put(packagePrefix + a.text().replace(".", "$"), link);
+    }
+    indexSimpleClassNames();
+    return fullClassNameToLink.size();
   }
 
+  /**
+   * Adds classes copied from Groovydoc, which are missing in the Javadoc class list.
+   *
+   * @param qualifiedNames qualified names of the classes
+   */
+  public void addClasses(Collection<String> qualifiedNames) {
+    qualifiedNames.forEach(n -> fullClassNameToLink.put(n, n.replace(".", "/") + ".html"));
+    indexSimpleClassNames();
+  }
 
-  private void prepare() throws IOException {
-    Document document = Jsoup.parse(
-        new File(outputDir, "allclasses-noframe.html"), StandardCharsets.UTF_8.name());
-    fullClassNameToLink = document.select("li a").stream()
-        .collect(Collectors.toMap(
-            a -> a.attr("title").replace("class in ", "") + "." + a.text().replace(".", "$"),
-            a -> a.attr("href")));
+  /**
+   * Enables links to methods and fields, such as {@code Foo.bar(String)}.
+   */
+  public void setMemberIndex(MemberIndex memberIndex) {
+    this.memberIndex = memberIndex;
+    log.info(String.format("detected %d package class members.", memberIndex.size()));
+  }
+
+  /**
+   * @return the dictionary of the merged docs
+   */
+  public ClassIndex getClassIndex() {
+    return new ClassIndex(fullClassNameToLink);
+  }
+
+  private void indexSimpleClassNames() {
+    // The first qualified name in sorted order takes a duplicated simple name, so that it
+    // resolves the same on every run
     classNameToLink = new HashMap<>();
-    fullClassNameToLink.forEach((k, v) -> {
+    new TreeMap<>(fullClassNameToLink).forEach((k, v) -> {
       String key = toSimpleClassName(k);
       if (classNameToLink.containsKey(key)) {
         log.warn(String.format("duplicated simple class name '%s'.", key));
@@ -91,34 +142,66 @@ public class ProjectLinkResolver extends LinkResolverBase {
     });
     fullClassNames = fullClassNameToLink.keySet();
     classNames = classNameToLink.keySet();
+    matcher = new ClassNameMatcher(
+        Stream.concat(fullClassNames.stream(), classNames.stream()).collect(Collectors.toList()));
 
     log.info(String.format("detected %d package classes.", fullClassNames.size()));
   }
 
-  private void replaceTextNodes(Elements elements, String linkPrefix) {
+  private int replaceTextNodes(Elements elements, String linkPrefix) {
+    int links = 0;
     if (elements != null) {
-      elements.forEach(e -> replaceTextNode(e, linkPrefix));
+      for (Element e : elements) {
+        links += replaceTextNode(e, linkPrefix);
+      }
     }
+    return links;
   }
 
-  private void replaceTextNode(Element element, String linkPrefix) {
+  private int replaceTextNode(Element element, String linkPrefix) {
     // Clone the element without its children to prevent ConcurrentModificationException
     Element newElement = element.clone().empty();
+    int links = 0;
 
     for (int i = 0; i < element.childNodeSize(); ++i) {
       // If child node is text, convert class name texts to linked texts.
       if (element.childNode(i) instanceof TextNode) {
         TextNode tn = (TextNode) element.childNode(i);
-        splitText(tn.getWholeText(), linkPrefix).forEach(newElement::appendChild);
+        for (Node node : splitText(tn.getWholeText(), linkPrefix)) {
+          newElement.appendChild(node);
+          if (node instanceof Element) {
+            ++links;
+          }
+        }
       } else {
         newElement.appendChild(element.childNode(i).clone());
       }
     }
     // Replace original element with the cloned element
     element.replaceWith(newElement);
+    return links;
   }
 
   private List<Node> splitText(String str, String linkPrefix) {
+    // Find member references, which are linked as a whole
+    Map<String, String> memberToLink = new HashMap<>();
+    List<Integer> memberIndices = new ArrayList<>();
+    Matcher m = MEMBER_REFERENCE.matcher(str);
+    int from = 0;
+    while (from < str.length() && m.find(from)) {
+      String link = getMemberLink(m.group(1), m.group(2), m.group(3));
+      if (link != null) {
+        memberToLink.put(m.group(), link);
+        memberIndices.add(m.start());
+        memberIndices.add(m.end());
+        from = m.end();
+      } else {
+        // Retry without the first qualifier, as in this.Foo.bar() or Foo#Bar.baz()
+        int dot = m.group(1).indexOf('.');
+        from = dot >= 0 ? m.start(1) + dot + 1 : m.start(2);
+      }
+    }
+
     List<Integer> indices = new ArrayList<>();
     // Create indices that split the string with class names
 
@@ -127,6 +210,14 @@ public class ProjectLinkResolver extends LinkResolverBase {
       indices.addAll(getIndicesOf(str, classNames));
     }
 
+    // Do not split member references
+    for (int i = 0; i < memberIndices.size(); i += 2) {
+      int start = memberIndices.get(i);
+      int end = memberIndices.get(i + 1);
+      indices.removeIf(index -> start < index && index < end);
+    }
+    indices.addAll(memberIndices);
+
     // Get split strings
     List<String> tokens = new ArrayList<>();
     indices.add(0);
@@ -139,7 +230,12 @@ public class ProjectLinkResolver extends LinkResolverBase {
     // Wrap a class name text with anchor to enable link
     List<Node> nodes = new ArrayList<>();
     tokens.forEach(s -> {
-      if (fullClassNames.contains(s)) {
+      if (memberToLink.containsKey(s)) {
+        log.info(String.format("replace text %s to link %s", s, memberToLink.get(s)));
+        nodes.add(new Element(Tag.valueOf("a"), "")
+            .attr("href", linkPrefix + memberToLink.get(s))
+            .text(s));
+      } else if (fullClassNames.contains(s)) {
         log.info(String.format("replace text %s to link %s", s, fullClassNameToLink.get(s)));
         nodes.add(new Element(Tag.valueOf("a"), "")
             .attr("href", linkPrefix + (fullClassNameToLink.get(s)))
@@ -156,4 +252,16 @@ public class ProjectLinkResolver extends LinkResolverBase {
 
     return nodes;
   }
+
+  /**
+   * @return the link to the member relative to outputDir, or null if it is not found
+   */
+  private String getMemberLink(String className, String member, String parameters) {
+    String page = fullClassNameToLink.getOrDefault(className, classNameToLink.get(className));
+    if (page == null) {
+      return null;
+    }
+    String anchor = memberIndex.getAnchor(page, MemberIndex.toMemberKey(member, parameters));
+    return anchor == null ? null : page + "#" + anchor;
+  }
 }
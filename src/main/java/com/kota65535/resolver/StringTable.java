@@ -0,0 +1,38 @@
+package com.kota65535.resolver;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+
+/**
+ * Immutable set of strings kept as a single sorted array.
+ */
+public class StringTable extends AbstractSet<String> {
+
+  private final String[] values;
+
+  public StringTable(Collection<String> values) {
+    this.values = values.stream()
+        .sorted()
+        .distinct()
+        .toArray(String[]::new);
+  }
+
+
+  @Override
+  public boolean contains(Object o) {
+    return o instanceof String && Arrays.binarySearch(values, o) >= 0;
+  }
+
+  @Override
+  public Iterator<String> iterator() {
+    return Arrays.asList(values).iterator();
+  }
+
+  @Override
+  public int size() {
+    return values.length;
+  }
+}
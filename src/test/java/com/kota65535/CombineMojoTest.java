@@ -0,0 +1,171 @@
+package com.kota65535;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.maven.plugin.Mojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CombineMojoTest {
+
+  private static final int PACKAGES = 6;
+
+  // Its package pages are created by the merge
+  private static final int GROOVY_ONLY_PACKAGE = 3;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File javadocDir;
+
+  private File groovydocDir;
+
+  @Before
+  public void setUp() throws IOException {
+    javadocDir = folder.newFolder("javadoc");
+    groovydocDir = folder.newFolder("groovydoc");
+
+    StringBuilder allClasses = new StringBuilder();
+    StringBuilder overviewFrame = new StringBuilder();
+    StringBuilder overviewSummary = new StringBuilder();
+    StringBuilder packageList = new StringBuilder();
+    for (int p = 0; p < PACKAGES; ++p) {
+      String name = "com.example.p" + p;
+      String path = name.replace('.', '/');
+      write(groovydocDir, path + "/Groovy" + p + ".html", "<h2>[Groovy] Class Groovy" + p
+          + "</h2><div class=\"block\">Extends <code>Java" + p + "</code>.</div>");
+      if (p == GROOVY_ONLY_PACKAGE) {
+        continue;
+      }
+      allClasses.append("<li><a href=\"" + path + "/Java" + p + ".html\">Java" + p + "</a></li>");
+      overviewFrame.append("<li><a href=\"" + path + "/package-frame.html\">" + name + "</a></li>");
+      overviewSummary.append("<tr><td><a href=\"" + path + "/package-summary.html\">" + name
+          + "</a></td><td></td></tr>");
+      packageList.append(name).append('\n');
+      write(javadocDir, path + "/package-frame.html", "<div class=\"indexContainer\">"
+          + "<h2 title=\"Classes\">Classes</h2><ul title=\"Classes\">"
+          + "<li><a href=\"Java" + p + ".html\">Java" + p + "</a></li></ul></div>");
+      write(javadocDir, path + "/package-summary.html", "<table class=\"typeSummary\">"
+          + "<tr><th>Class</th><th>Description</th></tr><tbody>"
+          + "<tr><td><a href=\"Java" + p + ".html\">Java" + p + "</a></td>"
+          + "<td><div class=\"block\">A <code>java.util.List</code>.</div></td></tr>"
+          + "</tbody></table>");
+      // Refers to the Groovy classes of its own and the Groovy only package
+      write(javadocDir, path + "/Java" + p + ".html", "<h2>Class Java" + p + "</h2>"
+          + "<div class=\"block\">Uses <code>Groovy" + p + "</code> and <code>Groovy"
+          + GROOVY_ONLY_PACKAGE + "</code>.</div>");
+    }
+    for (String fileName : new String[]{"allclasses-frame.html", "allclasses-noframe.html"}) {
+      write(javadocDir, fileName, "<div class=\"indexContainer\"><ul>" + allClasses
+          + "</ul></div>");
+    }
+    write(javadocDir, "overview-frame.html", "<div class=\"indexContainer\"><ul>" + overviewFrame
+        + "</ul></div>");
+    write(javadocDir, "overview-summary.html", "<table class=\"overviewSummary\">"
+        + "<tr><th>Package</th><th>Description</th></tr><tbody>" + overviewSummary
+        + "</tbody></table>");
+    Files.write(new File(javadocDir, "package-list").toPath(),
+        packageList.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testCombineEqualsMerge() throws Exception {
+    File mergedDir = new File(folder.getRoot(), "merged");
+    merge(mergedDir, 0, 1);
+
+    int shardCount = 3;
+    List<File> shardDirs = new ArrayList<>();
+    for (int i = 0; i < shardCount; ++i) {
+      File shardDir = new File(folder.getRoot(), "shard-" + i);
+      merge(shardDir, i, shardCount);
+      shardDirs.add(shardDir);
+    }
+    File combinedDir = new File(folder.getRoot(), "combined");
+    combine(shardDirs, combinedDir);
+
+    // The index pages are updated and rewritten
+    String packageSummary = new String(Files.readAllBytes(
+        new File(combinedDir, "com/example/p1/package-summary.html").toPath()),
+        StandardCharsets.UTF_8);
+    assertTrue(packageSummary.contains("Groovy1.html"));
+    assertTrue(packageSummary.contains("java/util/List.html"));
+
+    SortedSet<String> files = listFiles(mergedDir);
+    assertEquals(files, listFiles(combinedDir));
+    for (String file : files) {
+      assertArrayEquals(file, Files.readAllBytes(new File(mergedDir, file).toPath()),
+          Files.readAllBytes(new File(combinedDir, file).toPath()));
+    }
+  }
+
+  @Test(expected = MojoExecutionException.class)
+  public void testCombineNoShards() throws Exception {
+    combine(Collections.emptyList(), new File(folder.getRoot(), "combined"));
+  }
+
+  private void merge(File outputDir, int shardIndex, int shardCount) throws Exception {
+    JavadocMergerMojo mojo = new JavadocMergerMojo();
+    set(mojo, "javadocDir", javadocDir);
+    set(mojo, "groovydocDir", groovydocDir);
+    set(mojo, "outputDir", outputDir);
+    set(mojo, "javaVersion", "8");
+    set(mojo, "groovyVersion", "latest");
+    // Also rewrites the index pages
+    set(mojo, "linkCoreApi", true);
+    set(mojo, "memoryBudget", 64L);
+    set(mojo, "threads", 2);
+    set(mojo, "shardIndex", shardIndex);
+    set(mojo, "shardCount", shardCount);
+    mojo.execute();
+  }
+
+  private void combine(List<File> shardDirs, File outputDir) throws Exception {
+    CombineMojo mojo = new CombineMojo();
+    set(mojo, "shardDirs", shardDirs);
+    set(mojo, "outputDir", outputDir);
+    mojo.execute();
+  }
+
+  private static void set(Mojo mojo, String name, Object value) throws IllegalAccessException {
+    ReflectionUtils.setVariableValueInObject(mojo, name, value);
+  }
+
+  /**
+   * @return relative paths of the files, except the state of the merge
+   */
+  private static SortedSet<String> listFiles(File dir) throws IOException {
+    Path root = dir.toPath();
+    try (Stream<Path> paths = Files.walk(root)) {
+      return paths
+          .filter(Files::isRegularFile)
+          .map(p -> root.relativize(p).toString().replace(File.separator, "/"))
+          .filter(p -> !p.startsWith(".javadoc-merger"))
+          .collect(Collectors.toCollection(TreeSet::new));
+    }
+  }
+
+  private static void write(File dir, String path, String body) throws IOException {
+    File file = new File(dir, path);
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), ("<html><body>" + body + "</body></html>")
+        .getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,47 @@
+package com.kota65535;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.common.hash.Hashing;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ContentManifestTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testWrite() throws IOException {
+    Path dir = folder.getRoot().toPath();
+    write(dir, "index.html", "index");
+    write(dir, "com/example/Foo.html", "foo");
+    write(dir, "allclasses-frame.html", "all");
+    write(dir, ".javadoc-merger-fingerprint", "state");
+
+    ContentManifest.write(dir, Runnable::run);
+
+    assertEquals(Arrays.asList(
+        sha256("all") + "  allclasses-frame.html",
+        sha256("foo") + "  com/example/Foo.html",
+        sha256("index") + "  index.html"),
+        Files.readAllLines(dir.resolve(ContentManifest.FILE_NAME), StandardCharsets.UTF_8));
+  }
+
+  private static void write(Path dir, String path, String content) throws IOException {
+    File file = dir.resolve(path).toFile();
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String sha256(String content) {
+    return Hashing.sha256().hashString(content, StandardCharsets.UTF_8).toString();
+  }
+}
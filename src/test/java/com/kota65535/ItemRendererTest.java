@@ -0,0 +1,78 @@
+package com.kota65535;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.common.io.Resources;
+import com.samskivert.mustache.Mustache;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class ItemRendererTest {
+
+  private static final String LINK = "com/example/Foo.html?a=1&b='2'";
+
+  private static final String PACKAGE = "com.example";
+
+  private static final String CLASS = "Foo<T> \"`bar`\"";
+
+  private final ItemRenderer renderer = new ItemRenderer();
+
+  @Test
+  public void testAllClassesItem() throws IOException {
+    Map<String, String> context = new HashMap<>();
+    context.put("htmlLink", LINK);
+    context.put("packageName", PACKAGE);
+    context.put("className", CLASS);
+    assertEquals(render("allClassesItem.html.mustache", context),
+        renderer.allClassesItem(LINK, PACKAGE, CLASS));
+  }
+
+  @Test
+  public void testPackageFrameItem() throws IOException {
+    Map<String, String> context = new HashMap<>();
+    context.put("htmlLink", LINK);
+    context.put("qualifiedClassName", PACKAGE);
+    context.put("className", CLASS);
+    assertEquals(render("packageFrameItem.html.mustache", context),
+        renderer.packageFrameItem(LINK, PACKAGE, CLASS));
+  }
+
+  @Test
+  public void testPackageSummaryItem() throws IOException {
+    Map<String, String> context = new HashMap<>();
+    context.put("rowClass", "rowColor");
+    context.put("htmlLink", LINK);
+    context.put("qualifiedClassName", PACKAGE);
+    context.put("className", CLASS);
+    assertEquals(render("packageSummaryItem.html.mustache", context),
+        renderer.packageSummaryItem("rowColor", LINK, PACKAGE, CLASS));
+  }
+
+  @Test
+  public void testOverviewFrameItem() throws IOException {
+    Map<String, String> context = new HashMap<>();
+    context.put("htmlLink", LINK);
+    context.put("packageName", PACKAGE);
+    assertEquals(render("overviewFrameItem.html.mustache", context),
+        renderer.overviewFrameItem(LINK, PACKAGE));
+  }
+
+  @Test
+  public void testOverviewSummaryItem() throws IOException {
+    Map<String, String> context = new HashMap<>();
+    context.put("rowClass", "altColor");
+    context.put("htmlLink", LINK);
+    context.put("packageName", PACKAGE);
+    assertEquals(render("overviewSummaryItem.html.mustache", context),
+        renderer.overviewSummaryItem("altColor", LINK, PACKAGE));
+  }
+
+  private String render(String template, Map<String, String> context) throws IOException {
+    return Mustache.compiler()
+        .compile(Resources.toString(Resources.getResource(template), StandardCharsets.UTF_8))
+        .execute(context);
+  }
+}
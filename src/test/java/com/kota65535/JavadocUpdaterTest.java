@@ -0,0 +1,103 @@
+package com.kota65535;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.jsoup.Jsoup;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JavadocUpdaterTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File dir;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = folder.getRoot();
+    for (String fileName : new String[]{"allclasses-frame.html", "allclasses-noframe.html"}) {
+      write(fileName, "<div class=\"indexContainer\"><ul>"
+          + "<li><a href=\"com/example/JavaFoo.html\">JavaFoo</a></li></ul></div>");
+    }
+    write("overview-frame.html", "<div class=\"indexContainer\"><ul>"
+        + "<li><a href=\"com/example/package-frame.html\">com.example</a></li></ul></div>");
+    write("overview-summary.html", "<table class=\"overviewSummary\">"
+        + "<tr><th>Package</th><th>Description</th></tr>"
+        + "<tbody><tr class=\"altColor\">"
+        + "<td><a href=\"com/example/package-summary.html\">com.example</a></td><td></td>"
+        + "</tr></tbody></table>");
+    write("com/example/package-summary.html", "<table class=\"typeSummary\">"
+        + "<tr><th>Class</th><th>Description</th></tr>"
+        + "<tbody><tr class=\"altColor\">"
+        + "<td><a href=\"JavaFoo.html\">JavaFoo</a></td><td></td>"
+        + "</tr></tbody></table>");
+    write("com/example/package-frame.html", "<div class=\"indexContainer\">"
+        + "<h2 title=\"Classes\">Classes</h2><ul title=\"Classes\">"
+        + "<li><a href=\"JavaFoo.html\">JavaFoo</a></li></ul></div>");
+    write("com/example/GroovyBar.html", "<h2>[Groovy] Class GroovyBar</h2>");
+    write("com/example/GroovyTrait.html", "<h2>[Groovy] Trait GroovyTrait</h2>");
+    write("com/example/gonly/Baz.html", "<h2>[Groovy] Class Baz</h2>");
+  }
+
+  @Test
+  public void testUpdate() throws IOException {
+    new JavadocUpdater(new SystemStreamLog(), dir, new PageSerializer(false)).update(Arrays.asList(
+        new File(dir, "com/example/GroovyBar.html"),
+        new File(dir, "com/example/GroovyTrait.html"),
+        new File(dir, "com/example/gonly/Baz.html")));
+
+    List<String> allClasses = Arrays.asList("Baz", "GroovyBar", "GroovyTrait", "JavaFoo");
+    assertEquals(allClasses, texts("allclasses-frame.html", "ul a"));
+    assertEquals(allClasses, texts("allclasses-noframe.html", "ul a"));
+
+    // The Groovy only package is created and listed once
+    List<String> packages = Arrays.asList("com.example", "com.example.gonly");
+    assertEquals(packages, texts("overview-frame.html", "ul a"));
+    assertEquals(packages, texts("overview-summary.html", "tbody a"));
+    assertEquals(Arrays.asList("altColor", "rowColor"),
+        attrs("overview-summary.html", "tr:has(td)", "class"));
+    assertEquals(Arrays.asList("Baz"), texts("com/example/gonly/package-frame.html", "ul a"));
+    assertTrue(texts("com/example/gonly/package-summary.html", "a").contains("Baz"));
+
+    // Rows are sorted and striped again, classes are listed in the section of their type
+    assertEquals(Arrays.asList("GroovyBar", "GroovyTrait", "JavaFoo"),
+        texts("com/example/package-summary.html", "tbody a"));
+    assertEquals(Arrays.asList("altColor", "rowColor", "altColor"),
+        attrs("com/example/package-summary.html", "tr:has(td)", "class"));
+    assertEquals(Arrays.asList("GroovyBar", "JavaFoo"),
+        texts("com/example/package-frame.html", "ul[title=Classes] a"));
+    assertEquals(Arrays.asList("GroovyTrait"),
+        texts("com/example/package-frame.html", "ul[title=Traits] a"));
+  }
+
+  private void write(String path, String body) throws IOException {
+    File file = new File(dir, path);
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), ("<html><body>" + body + "</body></html>")
+        .getBytes(StandardCharsets.UTF_8));
+  }
+
+  private List<String> texts(String path, String query) throws IOException {
+    return Jsoup.parse(new File(dir, path), StandardCharsets.UTF_8.name()).select(query).stream()
+        .map(e -> e.text())
+        .collect(Collectors.toList());
+  }
+
+  private List<String> attrs(String path, String query, String name) throws IOException {
+    return Jsoup.parse(new File(dir, path), StandardCharsets.UTF_8.name()).select(query).stream()
+        .map(e -> e.attr(name))
+        .collect(Collectors.toList());
+  }
+}
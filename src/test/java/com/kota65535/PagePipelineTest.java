@@ -0,0 +1,52 @@
+package com.kota65535;
+
+import com.kota65535.resolver.LinkResolverBase;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.jsoup.nodes.Document;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PagePipelineTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test(timeout = 30000, expected = StackOverflowError.class)
+  public void testFailsOnError() throws IOException {
+    Path root = folder.getRoot().toPath();
+    for (int i = 0; i < 500; ++i) {
+      Files.write(root.resolve(String.format("Page%d.html", i)),
+          "<p>page</p>".getBytes(StandardCharsets.UTF_8));
+    }
+
+    LinkResolverBase resolver = new LinkResolverBase(new SystemStreamLog(), root.toFile()) {
+      @Override
+      public int prepare() {
+        return 0;
+      }
+
+      @Override
+      public boolean accepts(Path file) {
+        return true;
+      }
+
+      @Override
+      public int rewrite(Path file, Document document) {
+        throw new StackOverflowError();
+      }
+    };
+
+    // A small budget, so the discovery waits for pages that are never released
+    try (MergeExecutors executors = new MergeExecutors(new SystemStreamLog(), 2, false)) {
+      new PagePipeline(new SystemStreamLog(), new MemoryBudget(1000), executors,
+          Collections.singletonList(resolver), p -> true, new PageSerializer(false))
+          .run(root);
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package com.kota65535;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.Test;
+
+public class PageSerializerTest {
+
+  @Test
+  public void testMinify() {
+    assertEquals("<html><head></head><body> <p>a b&nbsp; c</p> </body></html>",
+        minify("<html><body>\n  <p>a\n\t b&nbsp; c</p><!-- comment -->\n</body></html>"));
+  }
+
+  @Test
+  public void testMinifyKeepsPreformattedText() {
+    assertEquals("<html><head><script>if (a)\n  b();</script></head>"
+            + "<body><pre>public  int\n  x</pre></body></html>",
+        minify("<html><head><script>if (a)\n  b();</script></head>"
+            + "<body><pre>public  int\n  x</pre></body></html>"));
+  }
+
+  @Test
+  public void testNoMinify() {
+    Document document = Jsoup.parse("<p>a\n b<!-- comment --></p>");
+    assertEquals(document.outerHtml(),
+        new String(new PageSerializer(false).serialize(document), StandardCharsets.UTF_8));
+  }
+
+  private static String minify(String html) {
+    return new String(new PageSerializer(true).serialize(Jsoup.parse(html)),
+        StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,77 @@
+package com.kota65535.resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClassIndexTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final ClassIndex index = new ClassIndex(classes(
+      "com.example.JavaFoo", "com/example/JavaFoo.html",
+      "com.example.JavaFoo$Inner", "com/example/JavaFoo.Inner.html",
+      "com.example.gonly.Baz", "com/example/gonly/Baz.html"));
+
+  @Test
+  public void testWriteAndRead() throws IOException {
+    File dir = folder.getRoot();
+    index.write(dir);
+    assertEquals(Arrays.asList(
+        "com.example.JavaFoo\tcom/example/JavaFoo.html",
+        "com.example.JavaFoo$Inner\tcom/example/JavaFoo.Inner.html",
+        "com.example.gonly.Baz\tcom/example/gonly/Baz.html"),
+        lines(dir, ClassIndex.FILE_NAME));
+    assertEquals(index.getClasses(), ClassIndex.read(dir).getClasses());
+  }
+
+  @Test
+  public void testWritePackageLists() throws IOException {
+    File dir = folder.getRoot();
+    write(dir, "package-list", "com.example", "com.example.util");
+    index.writePackageLists(dir);
+    assertEquals(Arrays.asList("com.example", "com.example.gonly", "com.example.util"),
+        lines(dir, "package-list"));
+    assertFalse(new File(dir, "element-list").exists());
+  }
+
+  @Test
+  public void testWriteModularElementList() throws IOException {
+    File dir = folder.getRoot();
+    write(dir, "element-list", "module:example", "com.example", "module:other", "com.other");
+    // The module of the Groovy only package is unknown
+    assertEquals(new TreeSet<>(Arrays.asList("com.example.gonly")), index.writePackageLists(dir));
+    assertEquals(Arrays.asList("module:example", "com.example", "module:other", "com.other"),
+        lines(dir, "element-list"));
+    assertEquals(Arrays.asList("com.example", "com.example.gonly"), lines(dir, "package-list"));
+  }
+
+  private static Map<String, String> classes(String... namesAndLinks) {
+    Map<String, String> classes = new HashMap<>();
+    for (int i = 0; i < namesAndLinks.length; i += 2) {
+      classes.put(namesAndLinks[i], namesAndLinks[i + 1]);
+    }
+    return classes;
+  }
+
+  private static void write(File dir, String fileName, String... lines) throws IOException {
+    Files.write(new File(dir, fileName).toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+  }
+
+  private static List<String> lines(File dir, String fileName) throws IOException {
+    return Files.readAllLines(new File(dir, fileName).toPath(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,45 @@
+package com.kota65535.resolver;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+public class ClassNameMatcherTest {
+
+  private final ClassNameMatcher matcher = new ClassNameMatcher(
+      Arrays.asList("java.util.List", "java.util.Map", "List", "ArrayDeque", "Überklasse"));
+
+  @Test
+  public void testMatchesAny() {
+    assertTrue(matches("<code>java.util.List</code>"));
+    assertTrue(matches("returns an ArrayList"));
+    assertTrue(matches("<dd>java.util.Map&lt;K,V&gt;</dd>"));
+    assertTrue(matches("eine Überklasse"));
+  }
+
+  @Test
+  public void testMatchesOverlappingPrefix() {
+    // "ArrayDe" is a dead end that must fall back to find nothing, "java.util.Ma" to find "Map"
+    assertFalse(matches("ArrayDe java.util.Ma"));
+    assertTrue(matches("java.util.Ljava.util.Map"));
+  }
+
+  @Test
+  public void testNoMatch() {
+    assertFalse(matches("<html><body>help</body></html>"));
+    assertFalse(matches(""));
+    assertFalse(new ClassNameMatcher(Collections.emptyList()).matchesAny(bytes("List")));
+  }
+
+  private boolean matches(String content) {
+    return matcher.matchesAny(bytes(content));
+  }
+
+  private static byte[] bytes(String content) {
+    return content.getBytes(StandardCharsets.UTF_8);
+  }
+}
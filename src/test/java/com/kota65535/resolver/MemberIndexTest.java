@@ -0,0 +1,93 @@
+package com.kota65535.resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class MemberIndexTest {
+
+  private static final String JAVADOC8 = "com/example/JavaFoo.html";
+  private static final String JAVADOC11 = "com/example/Helper.html";
+  private static final String GROOVYDOC = "com/example/GroovyBar.html";
+
+  private final MemberIndex index = build();
+
+  @Test
+  public void testJavadoc8Anchors() {
+    assertEquals("hello-java.lang.String-", anchor(JAVADOC8, "hello", "String"));
+    assertEquals("hello-java.lang.String-", anchor(JAVADOC8, "hello", "java.lang.String name"));
+    assertEquals("put-java.util.Map-java.lang.String:A-",
+        anchor(JAVADOC8, "put", "Map<String, List<String>> map, String... keys"));
+    assertEquals("count", anchor(JAVADOC8, "count", null));
+  }
+
+  @Test
+  public void testJavadoc11Anchors() {
+    assertEquals("help()", anchor(JAVADOC11, "help", ""));
+    assertEquals("help(int[],java.lang.Object...)", anchor(JAVADOC11, "help", "int[], Object..."));
+  }
+
+  @Test
+  public void testGroovydocAnchors() {
+    assertEquals("greet(java.lang.String)", anchor(GROOVYDOC, "greet", "String"));
+  }
+
+  @Test
+  public void testNotFound() {
+    assertNull(anchor(JAVADOC8, "hello", "Object"));
+    assertNull(anchor(JAVADOC8, "hello", null));
+    assertNull(anchor(GROOVYDOC, "hello", "String"));
+    assertNull(anchor("com/example/Other.html", "hello", "String"));
+  }
+
+  @Test
+  public void testNavigationIsNotIndexed() {
+    assertNull(anchor(JAVADOC8, "date", null));
+    assertNull(anchor(JAVADOC8, "t0", null));
+    assertNull(anchor(GROOVYDOC, "navbar_top", null));
+    assertNull(anchor(GROOVYDOC, "method_summary", null));
+    assertEquals(6, index.size());
+  }
+
+  @Test
+  public void testScanAnchorsInRawContent() {
+    MemberIndex.Builder builder = new MemberIndex.Builder();
+    builder.add("com/example/A.html", bytes("<script>if (a < b) {}</script>"
+        + "<a\nhref=\"#x\" name=\"first\"></a><abbr id=\"abbr\"></abbr>"
+        + "<a data-id=\"dataId\"></a><section id=\"wie\u00dfen()\"></section>"));
+    builder.add("com/example/B.html", bytes("<a name=\"first\"></a><a name=\"\"></a>"));
+    MemberIndex index = builder.build();
+
+    assertEquals("first", index.getAnchor("com/example/A.html", "first"));
+    assertEquals("wie\u00dfen()", index.getAnchor("com/example/A.html", "wie\u00dfen()"));
+    assertEquals("first", index.getAnchor("com/example/B.html", "first"));
+    assertNull(index.getAnchor("com/example/A.html", "abbr"));
+    assertNull(index.getAnchor("com/example/A.html", "dataId"));
+    assertEquals(3, index.size());
+  }
+
+  private String anchor(String page, String member, String parameters) {
+    return index.getAnchor(page, MemberIndex.toMemberKey(member, parameters));
+  }
+
+  private static MemberIndex build() {
+    MemberIndex.Builder builder = new MemberIndex.Builder();
+    builder.add(JAVADOC8, bytes("<meta name=\"date\" content=\"2020-01-01\">"
+        + "<a name=\"navbar.top\"><!-- --></a><span id=\"t0\">All</span>"
+        + "<a name=\"count\"><!-- --></a>"
+        + "<a name=\"hello-java.lang.String-\"><!-- --></a>"
+        + "<a name=\"put-java.util.Map-java.lang.String:A-\"><!-- --></a>"
+        + "<a href=\"#count\">count</a>"));
+    builder.add(JAVADOC11, bytes("<section class=\"detail\" id=\"help()\">"
+        + "<a id=\"help(int[],java.lang.Object...)\"></a>"));
+    builder.add(GROOVYDOC, bytes("<a name=\"navbar_top\"></a><a name=\"method_summary\"></a>"
+        + "<a name=\"greet(java.lang.String)\"><!-- --></a>"));
+    return builder.build();
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+}
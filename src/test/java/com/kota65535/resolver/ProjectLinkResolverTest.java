@@ -0,0 +1,61 @@
+package com.kota65535.resolver;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProjectLinkResolverTest {
+
+  // From com/example/Page.html back to the docs root and into com/example
+  private static final String PREFIX = "../../com/example/";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private ProjectLinkResolver resolver;
+
+  private File outputDir;
+
+  @Before
+  public void setUp() {
+    outputDir = folder.getRoot();
+    resolver = new ProjectLinkResolver(new SystemStreamLog(), outputDir, outputDir);
+    resolver.addClasses(Arrays.asList("com.example.Foo", "com.example.Bar"));
+    MemberIndex.Builder members = new MemberIndex.Builder();
+    members.add("com/example/Bar.html",
+        "<a name=\"baz()\"><!-- --></a>".getBytes(StandardCharsets.UTF_8));
+    resolver.setMemberIndex(members.build());
+  }
+
+  @Test
+  public void testMemberReference() {
+    assertEquals(Arrays.asList(PREFIX + "Bar.html#baz()"), hrefs("<code>Bar.baz()</code>"));
+  }
+
+  @Test
+  public void testMemberReferenceAfterFailedCandidate() {
+    // Foo#Bar and this.Bar.baz are not members, but Bar.baz() after them is
+    assertEquals(Arrays.asList(PREFIX + "Foo.html", PREFIX + "Bar.html#baz()"),
+        hrefs("<code>Foo#Bar.baz()</code>"));
+    assertEquals(Arrays.asList(PREFIX + "Bar.html#baz()"), hrefs("<code>this.Bar.baz()</code>"));
+  }
+
+  private List<String> hrefs(String body) {
+    Document document = Jsoup.parse("<html><body>" + body + "</body></html>");
+    resolver.rewrite(new File(outputDir, "com/example/Page.html").toPath(), document);
+    return document.select("a").stream()
+        .map(a -> a.attr("href"))
+        .collect(Collectors.toList());
+  }
+}